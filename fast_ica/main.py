@@ -25,6 +25,35 @@ def data_read(filename, out_x, out_y):
     return matrix
 
 
+RESULTS = '../aggregate/results/'
+
+
+def load_results(folder):
+    """columns written by ResultsStore.exportColumns: numeric ones as .npy, strings as .txt"""
+    res = dict()
+    for name in ['module', 'component', 'precision', 'recall', 'f1score', 'f1score_low', 'f1score_high', 'predicted',
+                 'auc_roc', 'auc_roc_low', 'auc_roc_high', 'ica_auc_roc', 'time_ms']:
+        res[name] = np.load(folder + name + '.npy')
+    for name in ['title', 'dataset', 'method', 'base']:
+        with open(folder + name + '.txt', 'r') as f:
+            res[name] = np.array(f.read().splitlines(), dtype=str)
+    return res
+
+
+def best_modules(results, count):
+    """(title, module) pairs of the count modules with the best found F1-score of every run"""
+    best = dict()
+    for i in range(results['title'].size):
+        if results['method'][i] in ('x', 'y'):
+            key = (results['title'][i], results['module'][i])
+            best[key] = max(best.get(key, -1.0), results['f1score'][i])
+    selected = set()
+    for title in set(results['title']):
+        modules = sorted([k for k in best if k[0] == title], key=lambda k: -best[k])
+        selected.update(modules[:count])
+    return selected
+
+
 def solve():
     for i in range(10):
         folder = '../agg_big_05/'
@@ -53,23 +82,28 @@ def precalculate_data():
     roc_my = list()
     roc_fast_ica = list()
 
-    with open('../_answers_/aggregate_big_05_20.txt', 'r') as csvfile:
-        rows = csv.reader(csvfile, delimiter=',')
-        for row in rows:
-            if row[0].find('nc_0.25') != -1:
-                data_nc025.append(float(row[1]))
-            if row[0].find('x_0.25') != -1 or row[0].find('y_0.25') != -1:
-                data_my025.append(float(row[1]))
-                roc_my.append(float(row[2]))
-                roc_fast_ica.append(float(row[3]))
-            # if row[0].find('nc_0.4') != -1:
-            #     data_nc04.append(float(row[1]))
-            # if row[0].find('x_0.4') != -1 or row[0].find('y_0.4') != -1:
-            #     data_my04.append(float(row[1]))
-            # if row[0].find('nc_0.5') != -1:
-            #     data_nc05.append(float(row[1]))
-            # if row[0].find('x_0.5') != -1 or row[0].find('y_0.5') != -1:
-            #     data_my05.append(float(row[1]))
+    results = load_results(RESULTS)
+    selected = best_modules(results, 2)
+
+    for i in range(results['title'].size):
+        if (results['title'][i], results['module'][i]) not in selected:
+            continue
+        method = results['method'][i]
+        base = results['base'][i]
+        if method == 'nc' and base == '0.25':
+            data_nc025.append(round(results['f1score'][i], 4))
+        if method in ('x', 'y') and base == '0.25':
+            data_my025.append(round(results['f1score'][i], 4))
+            roc_my.append(round(results['auc_roc'][i], 4))
+            roc_fast_ica.append(round(results['ica_auc_roc'][i], 4))
+        # if method == 'nc' and base == '0.4':
+        #     data_nc04.append(round(results['f1score'][i], 4))
+        # if method in ('x', 'y') and base == '0.4':
+        #     data_my04.append(round(results['f1score'][i], 4))
+        # if method == 'nc' and base == '0.5':
+        #     data_nc05.append(round(results['f1score'][i], 4))
+        # if method in ('x', 'y') and base == '0.5':
+        #     data_my05.append(round(results['f1score'][i], 4))
 
     data_nc025 = np.array(data_nc025)
     data_my025 = np.array(data_my025)
@@ -0,0 +1,190 @@
+import analysis.Wilcoxon;
+import drawing.DrawUtils;
+import drawing.ROC;
+import io.ResultsStore;
+import io.Workspace;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * runs {@link Main} on many datasets of one input folder in parallel, every run gets its own workspace
+ * "./runs/{dataset}/", a run starts only when its memory estimate fits into the free part of the memory budget,
+ * at the end the results store is exported and the records of this batch are compared as in {@link Test}
+ * <p>
+ * arguments: [input folder] [dataset ...], all datasets with a .mtx file of the folder by default
+ */
+public class BatchRunner {
+    private static final String IN = "./input/";
+    private static final String RUNS = "./runs/";
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * CPLEX threads of one run, THREADS / THREADS_PER_RUN runs go in parallel
+     */
+    private static final int THREADS_PER_RUN = 2;
+    private static final double MEMORY_FRACTION = 0.8;
+    private static final int MODULES_TO_COMPARE = 2;
+
+    /**
+     * bytes on the Java heap and outside of it (CPLEX), of one run or of the budget
+     */
+    public record Memory(long heapBytes, long nativeBytes) {
+        // nothing
+    }
+
+    // rough per-run memory model:
+    private static final long BASE_BYTES = 64L << 20;
+    /**
+     * raw, standardized and whitened matrix plus FastICA copies
+     */
+    private static final long BYTES_PER_CELL = 4L * Double.BYTES;
+    /**
+     * CPLEX model, cut pools and callbacks per model variable (D + 8N + 2E)
+     */
+    private static final long BYTES_PER_VARIABLE = 2048;
+
+    public static void main(String[] args) throws Exception {
+        ROC.setHeadless(true);
+
+        String input = (args.length > 0) ? args[0] : IN;
+        if (!input.endsWith("/")) {
+            input += "/";
+        }
+        List<String> datasets = (args.length > 1)
+                ? Arrays.asList(args).subList(1, args.length)
+                : datasets(input);
+
+        List<String> failed = run(input, datasets, THREADS, THREADS_PER_RUN, memoryBudget());
+
+        ResultsStore store = ResultsStore.open(DrawUtils.RESULTS);
+        store.exportColumns(RUNS + "results/");
+        try (PrintWriter out = new PrintWriter(RUNS + "wilcoxon.txt")) {
+            Wilcoxon.report(Wilcoxon.ofSession(store.read(), ResultsStore.SESSION), MODULES_TO_COMPARE, out);
+        }
+
+        System.out.println("finished " + (datasets.size() - failed.size()) + " of " + datasets.size() + " runs");
+        if (!failed.isEmpty()) {
+            System.out.println("failed: " + failed);
+        }
+    }
+
+    /**
+     * @param threads cores to share, every run gets threadsPerRun of them
+     * @return datasets whose run failed, the error is written to the logs folder of their workspace
+     */
+    public static List<String> run(String input, List<String> datasets, int threads, int threadsPerRun, Memory budget) throws InterruptedException {
+        int perRun = Math.max(1, Math.min(threadsPerRun, threads));
+        int heapBudget = megabytes(budget.heapBytes(), Integer.MAX_VALUE);
+        int nativeBudget = megabytes(budget.nativeBytes(), Integer.MAX_VALUE);
+        // acquired in this order by every run, so no run holds native permits while it waits for heap ones:
+        Semaphore heap = new Semaphore(heapBudget, true);
+        Semaphore offHeap = new Semaphore(nativeBudget, true);
+
+        // the largest runs first, so they don't stay alone at the end:
+        Map<String, int[]> estimate = new HashMap<>();
+        for (String dataset : datasets) {
+            Memory memory = estimate(input, dataset);
+            estimate.put(dataset, new int[]{
+                    megabytes(memory.heapBytes(), heapBudget),
+                    megabytes(memory.nativeBytes(), nativeBudget)
+            });
+        }
+        List<String> order = new ArrayList<>(datasets);
+        order.sort(Comparator.comparing((String dataset) -> estimate.get(dataset)[0] + estimate.get(dataset)[1]).reversed());
+
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads / perRun));
+        try {
+            for (String dataset : order) {
+                Workspace workspace = Workspace.create(input, RUNS, dataset);
+                pool.execute(() -> {
+                    int[] permits = estimate.get(dataset);
+                    heap.acquireUninterruptibly(permits[0]);
+                    offHeap.acquireUninterruptibly(permits[1]);
+                    try {
+                        new Main(dataset, workspace, Main.Parameters.DEFAULT, perRun).run(null);
+                    } catch (Throwable e) {
+                        // errors too: an OutOfMemoryError of one run frees its heap and must not pass as success
+                        failed.add(dataset);
+                        try (PrintWriter log = new PrintWriter(workspace.logs() + "error.txt", StandardCharsets.UTF_8)) {
+                            e.printStackTrace(log);
+                        } catch (IOException ignored) {
+                            e.printStackTrace();
+                        }
+                    } finally {
+                        offHeap.release(permits[1]);
+                        heap.release(permits[0]);
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            if (!pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("batch runs not finished");
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * memory of one run from the sizes of its matrix and graph, see the memory model constants:
+     * the matrix copies live on the heap, the CPLEX model outside of it
+     */
+    public static Memory estimate(String input, String dataset) {
+        try {
+            long N;
+            long D;
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(input + dataset + ".mtx"), StandardCharsets.UTF_8)) {
+                String first = reader.readLine();
+                if (first == null) {
+                    return new Memory(BASE_BYTES, 0);
+                }
+                D = first.split("\\s+").length - 1;
+                N = 1 + reader.lines().count();
+            }
+            long E;
+            try (Stream<String> lines = Files.lines(Path.of(input + dataset + ".graph"), StandardCharsets.UTF_8)) {
+                E = 2 * lines.count();
+            }
+            return new Memory(BASE_BYTES + BYTES_PER_CELL * N * D, BYTES_PER_VARIABLE * (D + 8 * N + 2 * E));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // private methods:
+
+    private static List<String> datasets(String input) {
+        String[] files = new File(input).list((dir, name) -> name.endsWith(".mtx"));
+        if (files == null) {
+            throw new RuntimeException("can't list input folder " + input);
+        }
+        return Arrays.stream(files).map(f -> f.substring(0, f.length() - ".mtx".length())).sorted().toList();
+    }
+
+    /**
+     * MEMORY_FRACTION of the maximum heap for the heap part, MEMORY_FRACTION of the physical memory
+     * without the maximum heap for CPLEX, as much as for the heap if the physical memory is unknown
+     */
+    private static Memory memoryBudget() {
+        long heap = Runtime.getRuntime().maxMemory();
+        long offHeap = (long) (MEMORY_FRACTION * heap);
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            offHeap = Math.max(0, (long) (MEMORY_FRACTION * os.getTotalMemorySize()) - heap);
+        }
+        return new Memory((long) (MEMORY_FRACTION * heap), offHeap);
+    }
+
+    /**
+     * @return whole megabytes in [1, budget]
+     */
+    private static int megabytes(long bytes, int budget) {
+        return (int) Math.max(1, Math.min(budget, bytes >> 20));
+    }
+}
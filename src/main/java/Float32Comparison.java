@@ -0,0 +1,152 @@
+import analysis.DataAnalysis;
+import analysis.FastICA;
+import drawing.BatchEvaluator;
+import drawing.RankedScores;
+import io.NewMatrixIO;
+import utils.Matrix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * accuracy, memory and throughput of float64 vs float32 storage on the same data:
+ * storage bytes of the expression and whitened matrices, time of the p = X a product used by the solvers,
+ * best AUC, best F1 over thresholds and precision@k of FastICA components against every true module
+ * <p>
+ * arguments: [input folder] [dataset ...], all datasets with a .mtx file of the folder by default
+ */
+public class Float32Comparison {
+    private static final int ICA_RESTARTS = 4;
+    private static final int MUL_REPEATS = 200;
+    private static final String IN = "./input/";
+    private static final String OUT = "./logs/float32_comparison.txt";
+
+    /**
+     * storage sizes, product time and {auc, f1, precision@k} of every module for one storage mode
+     */
+    private record Run(long rawBytes, long whitenedBytes, long mulTime, List<double[]> modules) {
+        // nothing
+    }
+
+    public static void main(String[] args) throws Exception {
+        String input = (args.length > 0) ? args[0] : IN;
+        if (!input.endsWith("/")) {
+            input += "/";
+        }
+        List<String> datasets = (args.length > 1)
+                ? Arrays.asList(args).subList(1, args.length)
+                : datasets(input);
+
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(OUT, true))) {
+            out.println("dataset,storage,raw_bytes,whitened_bytes,mul_ns,module,auc,f1,precision_at_k");
+            for (String dataset : datasets) {
+                Run float64 = compare(input, dataset, false, out);
+                Run float32 = compare(input, dataset, true, out);
+                out.flush();
+
+                double aucDelta = 0;
+                double f1Delta = 0;
+                for (int module = 0; module < float64.modules().size(); module++) {
+                    aucDelta = Math.max(aucDelta, Math.abs(float32.modules().get(module)[0] - float64.modules().get(module)[0]));
+                    f1Delta = Math.max(f1Delta, Math.abs(float32.modules().get(module)[1] - float64.modules().get(module)[1]));
+                }
+                System.out.println(dataset + ": max |auc delta| = " + aucDelta + ", max |f1 delta| = " + f1Delta
+                        + ", bytes " + (float64.rawBytes() + float64.whitenedBytes()) + " -> " + (float32.rawBytes() + float32.whitenedBytes())
+                        + ", mul ns " + float64.mulTime() + " -> " + float32.mulTime());
+            }
+        }
+    }
+
+    private static Run compare(String input, String dataset, boolean float32, PrintWriter out) throws Exception {
+        Map<String, Integer> namingMap = new HashMap<>();
+        Map<Integer, String> revNamingMap = new HashMap<>();
+        Matrix raw = NewMatrixIO.read(input + dataset + ".mtx", true, namingMap, revNamingMap, float32);
+
+        Matrix whitened = DataAnalysis.whitening(raw, DataAnalysis.PCA_COMPONENTS_NUM, null).matrix();
+        if (float32) {
+            whitened = whitened.toFloat();
+        }
+
+        int bytes = float32 ? Float.BYTES : Double.BYTES;
+        long rawBytes = (long) raw.numRows() * raw.numCols() * bytes;
+        long whitenedBytes = (long) whitened.numRows() * whitened.numCols() * bytes;
+
+        double[] a = new double[whitened.numCols()];
+        Arrays.fill(a, 1);
+        Matrix column = new Matrix(a).transpose();
+        long start = System.nanoTime();
+        for (int rep = 0; rep < MUL_REPEATS; rep++) {
+            whitened.mult(column);
+        }
+        long mulTime = (System.nanoTime() - start) / MUL_REPEATS;
+
+        Matrix sources = new FastICA(FastICA.Algorithm.SYMMETRIC, FastICA.Nonlinearity.LOGCOSH, ICA_RESTARTS)
+                .fit(whitened)
+                .sources();
+
+        Map<String, Integer> namingMapAns = new HashMap<>();
+        Map<Integer, String> revNamingMapAns = new HashMap<>();
+        Matrix ans = NewMatrixIO.read(input + dataset + ".ans", true, namingMapAns, revNamingMapAns);
+
+        List<double[]> modules = new ArrayList<>();
+        for (int module = 0; module < ans.numCols(); module++) {
+            boolean[] labels = new boolean[ans.numRows()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = ans.getElem(i, module) > 0.5;
+            }
+            BatchEvaluator evaluator = new BatchEvaluator(labels);
+
+            double bestAuc = 0;
+            double bestF1 = 0;
+            double bestPrecision = 0;
+            for (int component = 0; component < sources.numCols(); component++) {
+                for (int sign : new int[]{1, -1}) {
+                    double[] scores = new double[sources.numRows()];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = Math.max(0, sign * sources.getElem(i, component));
+                    }
+                    RankedScores ranked = evaluator.rank(scores);
+                    bestAuc = Math.max(bestAuc, ranked.auc());
+                    bestF1 = Math.max(bestF1, ranked.sweep().bestF1().f1score());
+                    bestPrecision = Math.max(bestPrecision, precisionAtK(scores, labels));
+                }
+            }
+            modules.add(new double[]{bestAuc, bestF1, bestPrecision});
+
+            out.println(dataset + "," + (float32 ? "float32" : "float64") + "," + rawBytes + "," + whitenedBytes
+                    + "," + mulTime + "," + module + "," + bestAuc + "," + bestF1 + "," + bestPrecision);
+        }
+        return new Run(rawBytes, whitenedBytes, mulTime, modules);
+    }
+
+    private static List<String> datasets(String input) {
+        String[] files = new File(input).list((dir, name) -> name.endsWith(".mtx"));
+        if (files == null) {
+            throw new RuntimeException("can't list input folder " + input);
+        }
+        return Arrays.stream(files).map(f -> f.substring(0, f.length() - ".mtx".length())).sorted().toList();
+    }
+
+    /**
+     * precision of the top-k scores, k is the number of true labels
+     */
+    private static double precisionAtK(double[] scores, boolean[] labels) {
+        Integer[] order = new Integer[scores.length];
+        int positives = 0;
+        for (int i = 0; i < scores.length; i++) {
+            order[i] = i;
+            if (labels[i]) positives++;
+        }
+        if (positives == 0) {
+            return 0;
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(scores[j], scores[i]));
+        int tp = 0;
+        for (int i = 0; i < positives; i++) {
+            if (labels[order[i]]) tp++;
+        }
+        return (double) tp / positives;
+    }
+}
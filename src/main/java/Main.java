@@ -1,207 +1,403 @@
+import analysis.DataAnalysis;
+import analysis.EdgeCorrelation;
+import analysis.FastICA;
+import analysis.OutOfCoreWhitening;
+import analysis.WhiteningCache;
 import drawing.DrawUtils;
+import drawing.EvaluationInput;
+import drawing.HeadlessChart;
 import graph.Graph;
 import io.GraphIO;
+import io.MappedMatrix;
 import io.NewMatrixIO;
+import io.ResultsStore;
+import io.ResultsStore.Record;
+import io.Workspace;
 import solver.ConnectCallbackSolver;
+import solver.ModuleSolution;
 import solver.MySolver;
+import solver.SimpleCallbackSolver;
 import utils.Matrix;
 import utils.Pair;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
-import static analysis.DataAnalysis.whitening;
 import static drawing.DrawUtils.ANS_FILES_COUNT;
 
 public class Main {
+    /**
+     * solver parameters of one run, {@link SweepEngine} runs a grid of them
+     *
+     * @param pcaComponents count of whitened components the solver works on
+     */
+    public record Parameters(double INF, double STEP, int TL, int pcaComponents) {
+        public static final Parameters DEFAULT = new Parameters(1000, 0.001, 50, DataAnalysis.PCA_COMPONENTS_NUM);
+
+        /**
+         * @return suffix of run titles and workspace names
+         */
+        public String name() {
+            return "inf" + INF + "_step" + STEP + "_tl" + TL + "_pca" + pcaComponents;
+        }
+    }
+
+    /**
+     * inputs of one dataset read once and shared read-only by runs with different parameters
+     *
+     * @param raw    the matrix before whitening, null if it stays out of core in the cache folder
+     * @param fastIca components of the .fast_ica file, null if they are computed for every whitening
+     */
+    public record Dataset(
+            Matrix raw,
+            Graph graph,
+            boolean[][] modules,
+            int[] clusterSizes,
+            List<double[]> clusters,
+            Matrix fastIca
+    ) {
+        // nothing
+    }
+
+    /**
+     * whitened matrix of one PCA components count with the baselines evaluated against it
+     */
+    public record Prepared(Matrix matrix, EvaluationInput baselines) {
+        // nothing
+    }
+
     public Main(String FILENAME) {
+        this(FILENAME, Workspace.DEFAULT);
+    }
+
+    /**
+     * @param workspace answers and logs folders of this run, parallel runs need different ones
+     */
+    public Main(String FILENAME, Workspace workspace) {
+        this(FILENAME, workspace, Parameters.DEFAULT);
+    }
+
+    public Main(String FILENAME, Workspace workspace, Parameters parameters) {
+        this(FILENAME, workspace, parameters, 0);
+    }
+
+    /**
+     * @param threads solver threads of this run, 0 for all cores; parallel runs should share the cores
+     */
+    public Main(String FILENAME, Workspace workspace, Parameters parameters, int threads) {
         this.FILENAME = FILENAME;
+        this.workspace = workspace;
+        this.parameters = parameters;
+        this.threads = threads;
     }
 
-    private static final double INF = 1000;
-    private static final double STEP = 0.001;
-    private static final int TL = 50;
+    private static final int MODULES_NUM = 1;
+    /**
+     * stop before the time limit when the objective stalls, off by default so runs match the time-limit-only baseline
+     */
+    private static final boolean STOP_ON_PLATEAU = false;
+    private static final long PLATEAU_WINDOW_MS = 20_000;
+    private static final double PLATEAU_GAP = 1e-3;
+    private static final int ICA_RESTARTS = 8;
     private static final boolean IS_MAIN = true;
     private static final boolean IS_HEURISTIC = false;
-    private static final String OUT_FOLDER = "./answers/";
-    private static final String IN = "./input/";
-    private static final String LOGS = "./logs/";
+    private static final boolean DUMP_ANSWERS = false;
+    private static final double EPS = 1e-6;
+    private static final String RESULTS = DrawUtils.RESULTS;
     private final String FILENAME;
+    private final Workspace workspace;
+    private final Parameters parameters;
+    private final int threads;
     private static final boolean REAL_DATA = false;
+    private static final boolean OUT_OF_CORE = false;
+    private static final boolean FLOAT32 = false;
+    private static final String CACHE = "./cache/";
 
     public void run(String[] args) {
         try {
-            // create net_clust predict answers file from .netclust_ans
+            Dataset dataset = read();
+            solve(dataset, whiten(dataset, parameters.pcaComponents()));
 
-            Map<String, Integer> namingMapAnsNetCl = new HashMap<>();
-            Map<Integer, String> revNamingMapAnsNetCl = new HashMap<>();
+            //DrawAPI.run();
 
-            List<Integer> sizes = new ArrayList<>();
-            for (int cnt = 1; cnt <= ANS_FILES_COUNT; cnt++) {
+            ResultsStore.open(RESULTS).flush();
 
-                namingMapAnsNetCl = new HashMap<>();
-                revNamingMapAnsNetCl = new HashMap<>();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                Matrix ansNetCl = NewMatrixIO.read(IN + FILENAME + ".netclust_" + cnt + "_ans", true, namingMapAnsNetCl, revNamingMapAnsNetCl);
+    /**
+     * @return title of the results of this run, the parameters are appended unless they are the default ones
+     */
+    public String title() {
+        return "main_" + FILENAME + (parameters.equals(Parameters.DEFAULT) ? "" : "_" + parameters.name());
+    }
 
-                sizes.add(ansNetCl.numCols());
-                for (int w = 0; w < ansNetCl.numCols(); w++) {
-                    try (PrintWriter out = new PrintWriter(OUT_FOLDER + cnt + "_nc_ans_" + w + ".txt")) {
-                        for (int i = 0; i < ansNetCl.numRows(); i++) {
-                            out.println(ansNetCl.getElem(i, w));
-                        }
-                    }
-                }
+    /**
+     * reads everything of the dataset that does not depend on the parameters
+     */
+    public Dataset read() throws IOException {
+        // read net_clust predict answers from .netclust_ans
 
-            }
-            try (PrintWriter out = new PrintWriter(OUT_FOLDER + "0_clust_size.txt")) {
-                for (int size : sizes)
-                    out.println(size);
-            }
+        Map<String, Integer> namingMapAnsNetCl = new HashMap<>();
+        Map<Integer, String> revNamingMapAnsNetCl = new HashMap<>();
 
-            // read matrix
+        int[] clusterSizes = new int[ANS_FILES_COUNT];
+        List<double[]> clusters = new ArrayList<>();
+        for (int cnt = 1; cnt <= ANS_FILES_COUNT; cnt++) {
 
-            Map<String, Integer> namingMap = new HashMap<>();
-            Map<Integer, String> revNamingMap = new HashMap<>();
+            namingMapAnsNetCl = new HashMap<>();
+            revNamingMapAnsNetCl = new HashMap<>();
 
-            Matrix matrix = NewMatrixIO.read(IN + FILENAME + ".mtx", true, namingMap, revNamingMap);
+            Matrix ansNetCl = NewMatrixIO.read(workspace.input() + FILENAME + ".netclust_" + cnt + "_ans", true, namingMapAnsNetCl, revNamingMapAnsNetCl);
 
-            // read hyp ans
+            clusterSizes[cnt - 1] = ansNetCl.numCols();
+            clusters.addAll(columns(ansNetCl));
 
-            if (REAL_DATA) {
-                try (PrintWriter ans_out = new PrintWriter(IN + FILENAME + ".ans", StandardCharsets.UTF_8)) {
+        }
 
-                    BufferedReader arg0 = new BufferedReader(new FileReader(IN + FILENAME + ".hyp", StandardCharsets.UTF_8));
-                    Set<String> hyp_set = arg0.lines().collect(Collectors.toSet());
+        // read matrix, out of core it is only converted to the binary file of the cache
 
-                    Scanner scanner1 = new Scanner(new FileReader(IN + FILENAME + ".mtx", StandardCharsets.UTF_8));
-                    while (scanner1.hasNextLine()) {
-                        String[] tokens = scanner1.nextLine().split("\\s");
-                        if (hyp_set.contains(tokens[0])) {
-                            ans_out.println(tokens[0] + "\t" + 1);
-                        } else {
-                            ans_out.println(tokens[0] + "\t" + 0);
-                        }
-                    }
+        Map<String, Integer> namingMap = new HashMap<>();
+        Map<Integer, String> revNamingMap = new HashMap<>();
 
-                } catch (Exception e) {
-                    throw new RuntimeException();
-                }
-            }
+        Matrix raw = null;
+        if (OUT_OF_CORE) {
+            MappedMatrix.convert(workspace.input() + FILENAME + ".mtx", mapped(), true, namingMap, revNamingMap).close();
+        } else {
+            raw = NewMatrixIO.read(workspace.input() + FILENAME + ".mtx", true, namingMap, revNamingMap, FLOAT32);
+        }
 
-            // create true answers file from .ans
+        // read hyp ans
 
-            Map<String, Integer> namingMapAns = new HashMap<>();
-            Map<Integer, String> revNamingMapAns = new HashMap<>();
+        if (REAL_DATA) {
+            try (PrintWriter ans_out = new PrintWriter(workspace.input() + FILENAME + ".ans", StandardCharsets.UTF_8)) {
 
-            Matrix ans = NewMatrixIO.read(IN + FILENAME + ".ans", true, namingMapAns, revNamingMapAns);
+                BufferedReader arg0 = new BufferedReader(new FileReader(workspace.input() + FILENAME + ".hyp", StandardCharsets.UTF_8));
+                Set<String> hyp_set = arg0.lines().collect(Collectors.toSet());
 
-            try (PrintWriter out = new PrintWriter(OUT_FOLDER + "0_module_size.txt")) {
-                out.println(ans.numCols());
-            }
-            for (int w = 0; w < ans.numCols(); w++) {
-                try (PrintWriter out = new PrintWriter("./answers/p_ans_" + w + ".txt")) {
-                    for (int i = 0; i < ans.numRows(); i++) {
-                        out.println(ans.getElem(i, w));
+                Scanner scanner1 = new Scanner(new FileReader(workspace.input() + FILENAME + ".mtx", StandardCharsets.UTF_8));
+                while (scanner1.hasNextLine()) {
+                    String[] tokens = scanner1.nextLine().split("\\s");
+                    if (hyp_set.contains(tokens[0])) {
+                        ans_out.println(tokens[0] + "\t" + 1);
+                    } else {
+                        ans_out.println(tokens[0] + "\t" + 0);
                     }
                 }
+
+            } catch (Exception e) {
+                throw new RuntimeException();
             }
+        }
 
-            // create FastICA answers file from .fast_ica
+        // read true answers from .ans
 
-            Map<String, Integer> namingMapFastICA = new HashMap<>();
-            Map<Integer, String> revNamingMapFastICA = new HashMap<>();
+        Map<String, Integer> namingMapAns = new HashMap<>();
+        Map<Integer, String> revNamingMapAns = new HashMap<>();
 
-            Matrix fast_ica = NewMatrixIO.read(IN + FILENAME + ".fast_ica", false, namingMapFastICA, revNamingMapFastICA);
+        Matrix ans = NewMatrixIO.read(workspace.input() + FILENAME + ".ans", true, namingMapAns, revNamingMapAns);
 
-            try (PrintWriter out = new PrintWriter(OUT_FOLDER + "0_fast_ica_size.txt")) {
-                out.println(fast_ica.numCols());
-            }
-            for (int w = 0; w < fast_ica.numCols(); w++) {
-                try (PrintWriter out = new PrintWriter("./answers/ica_ans_" + w + ".txt")) {
-                    for (int i = 0; i < fast_ica.numRows(); i++) {
-                        out.println(String.format("%.10f", fast_ica.getElem(i, w)).replaceAll(",", "."));
-                    }
-                }
+        boolean[][] modules = new boolean[ans.numCols()][ans.numRows()];
+        for (int w = 0; w < ans.numCols(); w++) {
+            for (int i = 0; i < ans.numRows(); i++) {
+                modules[w][i] = Math.abs(ans.getElem(i, w) - 1.0) < EPS;
             }
+        }
+
+        // read FastICA answers from .fast_ica, computed in-process by whiten if the file is missing
 
-            // read graph
+        Matrix fast_ica = null;
+        if (new File(workspace.input() + FILENAME + ".fast_ica").exists()) {
+            Map<String, Integer> namingMapFastICA = new HashMap<>();
+            Map<Integer, String> revNamingMapFastICA = new HashMap<>();
+            fast_ica = NewMatrixIO.read(workspace.input() + FILENAME + ".fast_ica", false, namingMapFastICA, revNamingMapFastICA);
+        }
 
-            Graph graph = GraphIO.read(IN + FILENAME + ".graph", namingMap, revNamingMap);
+        // read graph
 
-            try (PrintWriter log = new PrintWriter(LOGS + "edges.txt")) {
-                for (Pair<Integer, Integer> edge : graph.getEdges()) {
-                    log.println(revNamingMap.get(edge.first) + "\t" + revNamingMap.get(edge.second));
-                }
+        Graph graph = GraphIO.read(workspace.input() + FILENAME + ".graph", namingMap, revNamingMap);
+
+        try (PrintWriter log = new PrintWriter(workspace.logs() + "edges.txt")) {
+            for (Pair<Integer, Integer> edge : graph.getEdges()) {
+                log.println(revNamingMap.get(edge.first) + "\t" + revNamingMap.get(edge.second));
             }
+        }
 
-            // check
+        // check
 
-            if (namingMap.size() != namingMapAns.size()) {
+        if (namingMap.size() != namingMapAns.size()) {
+            throw new RuntimeException("not equals naming map");
+        }
+        namingMap.forEach((k, v) -> {
+            if (!Objects.equals(namingMapAns.get(k), v)) {
                 throw new RuntimeException("not equals naming map");
             }
-            namingMap.forEach((k, v) -> {
+        });
+        if (ANS_FILES_COUNT != 0) {
+            if (namingMapAnsNetCl.size() != namingMapAns.size()) {
+                throw new RuntimeException("not equals naming map");
+            }
+            namingMapAnsNetCl.forEach((k, v) -> {
                 if (!Objects.equals(namingMapAns.get(k), v)) {
                     throw new RuntimeException("not equals naming map");
                 }
             });
-            if (ANS_FILES_COUNT != 0) {
-                if (namingMapAnsNetCl.size() != namingMapAns.size()) {
-                    throw new RuntimeException("not equals naming map");
-                }
-                namingMapAnsNetCl.forEach((k, v) -> {
-                    if (!Objects.equals(namingMapAns.get(k), v)) {
-                        throw new RuntimeException("not equals naming map");
-                    }
-                });
-            }
+        }
 
-            // whitening
+        return new Dataset(raw, graph, modules, clusterSizes, clusters, fast_ica);
+    }
+
+    /**
+     * whitens the dataset to R components, FastICA runs on the result if there was no .fast_ica file
+     */
+    public Prepared whiten(Dataset dataset, int R) throws IOException {
+        Matrix matrix;
+        if (dataset.raw() == null) {
+            try (MappedMatrix in = MappedMatrix.open(mapped());
+                 MappedMatrix out = OutOfCoreWhitening.whitening(in, mapped() + ".whitened_" + R + ".bin", R).matrix()) {
+                matrix = out.toMatrix();
+            }
+        } else {
+            matrix = new WhiteningCache(CACHE).whitening(dataset.raw(), R).matrix();
+        }
+        if (FLOAT32) {
+            matrix = matrix.toFloat();
+        }
 
-            matrix = whitening(matrix);
+        Matrix fast_ica = dataset.fastIca();
+        if (fast_ica == null) {
+            fast_ica = new FastICA(FastICA.Algorithm.SYMMETRIC, FastICA.Nonlinearity.LOGCOSH, ICA_RESTARTS)
+                    .fit(matrix)
+                    .sources();
+        }
 
-            // solve
+        EvaluationInput baselines = EvaluationInput.baselines(dataset.modules(), dataset.clusterSizes(), dataset.clusters(), columns(fast_ica));
+        return new Prepared(matrix, baselines);
+    }
 
-            MySolver solver;
-            String newTitle;
-            if (IS_MAIN) {
-                solver = new ConnectCallbackSolver(matrix, graph, TL, INF, STEP);
-                newTitle = "main_" + FILENAME;
-            } else if (IS_HEURISTIC) {
-                //solver = new SimpleCallbackSolver(matrix, graph, TL, 10000, 0);
-                //newTitle = "heuristic_" + FILENAME;
-            } else {
-                throw new RuntimeException("unsupported");
+    /**
+     * solves with the parameters of this run, appends the evaluation to the results store
+     * and waits for the charts of this run, the caller flushes the store
+     *
+     * @return the records this run appended, empty if no solution was found
+     */
+    public List<Record> solve(Dataset dataset, Prepared prepared) throws Exception {
+        Graph graph = dataset.graph();
+        String newTitle = IS_MAIN ? title() : "heuristic_" + FILENAME;
+
+        ResultsStore store = ResultsStore.open(RESULTS);
+        List<Record> records = new ArrayList<>();
+        List<Future<?>> charts = new ArrayList<>();
+
+        // closed on failures too, long-lived batch and sweep JVMs would keep the CPLEX environment otherwise:
+        try (MySolver solver = newSolver(dataset, prepared)) {
+            if (STOP_ON_PLATEAU) {
+                solver.stopOnPlateau(PLATEAU_WINDOW_MS, PLATEAU_GAP);
             }
 
-            if (solver.solve()) {
-                try (PrintWriter out_q = new PrintWriter("./answers/q.txt")) {
-                    try (PrintWriter out_x = new PrintWriter("./answers/x.txt")) {
-                        try (PrintWriter out_t = new PrintWriter("./answers/t.txt")) {
-                            try (PrintWriter out_y = new PrintWriter("./answers/y.txt")) {
-                                solver.writeVarsToFiles(out_q, out_x, out_t, out_y);
-                            }
-                        }
-                    }
+            long start = System.currentTimeMillis();
+
+            if (MODULES_NUM > 1 && solver instanceof ConnectCallbackSolver connectSolver) {
+                List<ModuleSolution> found = connectSolver.solveModules(
+                        MODULES_NUM,
+                        ConnectCallbackSolver.ExtractionMode.DEFLATE
+                );
+                long timeMs = System.currentTimeMillis() - start;
+                for (int k = 0; k < found.size(); k++) {
+                    DrawUtils.Evaluation evaluation = evaluate(prepared.baselines(), found.get(k), newTitle + "_found_" + k, timeMs, graph, store);
+                    records.addAll(evaluation.records());
+                    charts.addAll(evaluation.charts());
                 }
-                DrawUtils.newDraw("./answers/", newTitle, graph);
+            } else if (solver.solve()) {
+                long timeMs = System.currentTimeMillis() - start;
+                DrawUtils.Evaluation evaluation = evaluate(prepared.baselines(), solver.getSolution(), newTitle, timeMs, graph, store);
+                records.addAll(evaluation.records());
+                charts.addAll(evaluation.charts());
             }
 
-            solver.close();
+            try (PrintWriter log = new PrintWriter(workspace.logs() + "run_statistics.txt")) {
+                log.println(solver.getStatistics());
+            }
+        }
 
-            //DrawAPI.run();
+        HeadlessChart.await(charts);
+        return records;
+    }
 
-            deleteAllFiles("./answers/");
+    /**
+     * @return the solver of this run: the connect solver or the heuristic with edge correlation weights
+     */
+    private MySolver newSolver(Dataset dataset, Prepared prepared) throws Exception {
+        Graph graph = dataset.graph();
+        if (IS_MAIN) {
+            return new ConnectCallbackSolver(prepared.matrix(), graph, parameters.TL(), parameters.INF(), parameters.STEP(), workspace, threads);
+        } else if (IS_HEURISTIC) {
+            SimpleCallbackSolver heuristic = new SimpleCallbackSolver(prepared.matrix(), graph, parameters.TL(), 10000, 0, workspace, threads);
+            try {
+                if (dataset.raw() != null) {
+                    heuristic.setEdgeWeights(EdgeCorrelation.cached(
+                            dataset.raw(), graph, workspace.input() + FILENAME + ".mtx", workspace.input() + FILENAME + ".graph"
+                    ));
+                }
+            } catch (Exception e) {
+                heuristic.close();
+                throw e;
+            }
+            return heuristic;
+        } else {
+            throw new RuntimeException("unsupported");
+        }
+    }
 
-        } catch (Exception e) {
-            deleteAllFiles("./answers/");
-            throw new RuntimeException(e);
+    /**
+     * hands the solution to the evaluation in memory, the ./answers files are written only for debugging
+     */
+    private DrawUtils.Evaluation evaluate(
+            EvaluationInput baselines,
+            ModuleSolution solution,
+            String title,
+            long timeMs,
+            Graph graph,
+            ResultsStore store
+    ) throws IOException {
+        EvaluationInput input = baselines.withSolution(solution.q(), solution.x(), solution.t(), solution.y());
+        if (DUMP_ANSWERS) {
+            new File(workspace.answers()).mkdirs();
+            deleteAllFiles(workspace.answers());
+            input.write(workspace.answers());
         }
+        return DrawUtils.newDraw(input, FILENAME, title, timeMs, graph, store);
+    }
+
+    /**
+     * @return matrix columns as separate arrays
+     */
+    private static List<double[]> columns(Matrix matrix) {
+        List<double[]> res = new ArrayList<>();
+        for (int w = 0; w < matrix.numCols(); w++) {
+            double[] column = new double[matrix.numRows()];
+            for (int i = 0; i < matrix.numRows(); i++) {
+                column[i] = matrix.getElem(i, w);
+            }
+            res.add(column);
+        }
+        return res;
+    }
+
+    /**
+     * binary copy of the matrix for the out-of-core whitening
+     */
+    private String mapped() {
+        return CACHE + FILENAME + ".mtx.bin";
     }
 
     private static void deleteAllFiles(String path) {
@@ -0,0 +1,76 @@
+import graph.Graph;
+import io.GraphIO;
+import io.NewMatrixIO;
+import io.Workspace;
+import solver.ConnectCallbackSolver;
+import solver.ModuleSolution;
+import solver.MySolver;
+import solver.PartitionedSolver;
+import utils.Matrix;
+
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static analysis.DataAnalysis.whitening;
+
+/**
+ * quality and wall-clock comparison of monolithic and partitioned solve on the same data,
+ * both solutions are scored by the same global evaluation, partitioning seed is fixed
+ */
+public class PartitionComparison {
+    private static final double INF = 1000;
+    private static final double STEP = 0.001;
+    private static final int TL = 50;
+    private static final int PARTS = 4;
+    private static final int HALO_DEPTH = 2;
+    /**
+     * regions are solved in parallel, together they get all cores as the monolithic solve
+     */
+    private static final int REGION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / PARTS);
+    private static final long SEED = 42;
+    private static final String IN = "./input/";
+    private static final String OUT = "./logs/partition_comparison.txt";
+    private static final String REGIONS = "./runs/partition/";
+
+    public static void main(String[] args) throws Exception {
+        String[] datasets = (args.length > 0) ? args : new String[]{"a2_test_05"};
+        for (String dataset : datasets) {
+            compare(dataset);
+        }
+    }
+
+    private static void compare(String dataset) throws Exception {
+        Map<String, Integer> namingMap = new HashMap<>();
+        Map<Integer, String> revNamingMap = new HashMap<>();
+        Matrix matrix = whitening(NewMatrixIO.read(IN + dataset + ".mtx", true, namingMap, revNamingMap));
+        Graph graph = GraphIO.read(IN + dataset + ".graph", namingMap, revNamingMap);
+
+        long start = System.currentTimeMillis();
+        double monolithic = Double.NaN;
+        try (MySolver solver = new ConnectCallbackSolver(matrix, graph, TL, INF, STEP)) {
+            if (solver.solve()) {
+                ModuleSolution sol = PartitionedSolver.evaluate(matrix, graph, solver.getSolution().a(), STEP);
+                monolithic = (sol == null) ? Double.NaN : sol.objective();
+            }
+        }
+        long monolithicTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        double partitioned = Double.NaN;
+        try (MySolver solver = new PartitionedSolver(matrix, graph, PARTS, HALO_DEPTH, STEP, SEED,
+                (region, subMatrix, subGraph) -> new ConnectCallbackSolver(subMatrix, subGraph, TL, INF, STEP,
+                        Workspace.create(IN, REGIONS + dataset, "region_" + region), REGION_THREADS))) {
+            if (solver.solve()) {
+                partitioned = solver.getSolution().objective();
+            }
+        }
+        long partitionedTime = System.currentTimeMillis() - start;
+
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(OUT, true))) {
+            out.println(dataset + ",monolithic," + monolithic + "," + monolithicTime);
+            out.println(dataset + ",partitioned_" + PARTS + "_" + HALO_DEPTH + "," + partitioned + "," + partitionedTime);
+        }
+    }
+}
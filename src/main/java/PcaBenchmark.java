@@ -0,0 +1,87 @@
+import analysis.DataAnalysis;
+import analysis.RandomizedPca;
+import utils.Matrix;
+import utils.Pair;
+
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * wall-clock and accuracy comparison of exact (covariance + eigen decomposition) and randomized PCA
+ * on synthetic low-rank plus noise data with a growing number of columns
+ */
+public class PcaBenchmark {
+    private static final int N = 2000;
+    private static final int[] COLS = {16, 64, 128, 256, 512, 1024, 2048};
+    private static final int R = DataAnalysis.PCA_COMPONENTS_NUM;
+    private static final int LATENT = 5;
+    private static final int REPEATS = 3;
+    private static final long SEED = 42;
+    private static final String OUT = "./logs/pca_benchmark.txt";
+
+    public static void main(String[] args) throws Exception {
+        try (PrintWriter out = new PrintWriter(new FileOutputStream(OUT, true))) {
+            out.println("N,D,exact_ms,randomized_ms,max_eigen_rel_err,min_abs_cos");
+            for (int D : COLS) {
+                Matrix matrix = DataAnalysis.standardization(generate(N, D), null, false, false);
+
+                long exactTime = Long.MAX_VALUE;
+                long randomizedTime = Long.MAX_VALUE;
+                Pair<double[], double[][]> exact = null;
+                Pair<double[], double[][]> randomized = null;
+                for (int rep = 0; rep < REPEATS; rep++) {
+                    long start = System.nanoTime();
+                    exact = DataAnalysis.pcaBasis(DataAnalysis.getCovMatrix2(matrix), null, R);
+                    exactTime = Math.min(exactTime, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    randomized = RandomizedPca.basis(matrix, R);
+                    randomizedTime = Math.min(randomizedTime, System.nanoTime() - start);
+                }
+
+                double eigenErr = 0;
+                double minCos = 1;
+                for (int i = 0; i < R; i++) {
+                    eigenErr = Math.max(eigenErr,
+                            Math.abs(exact.first[i] - randomized.first[i]) / Math.abs(exact.first[i]));
+                    minCos = Math.min(minCos, Math.abs(Matrix.scalProd(exact.second[i], randomized.second[i])));
+                }
+
+                String line = N + "," + D + "," + exactTime / 1_000_000 + "," + randomizedTime / 1_000_000
+                        + "," + eigenErr + "," + minCos;
+                out.println(line);
+                out.flush();
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * N samples of LATENT factors with decreasing weights mixed into D columns, plus unit noise
+     */
+    private static Matrix generate(int N, int D) {
+        Random random = new Random(SEED);
+        double[][] mixing = new double[LATENT][D];
+        for (int f = 0; f < LATENT; f++) {
+            for (int j = 0; j < D; j++) {
+                mixing[f][j] = random.nextGaussian() * (LATENT - f);
+            }
+        }
+        double[][] data = new double[N][D];
+        double[] factors = new double[LATENT];
+        for (int i = 0; i < N; i++) {
+            for (int f = 0; f < LATENT; f++) {
+                factors[f] = random.nextGaussian();
+            }
+            for (int j = 0; j < D; j++) {
+                double val = random.nextGaussian();
+                for (int f = 0; f < LATENT; f++) {
+                    val += factors[f] * mixing[f][j];
+                }
+                data[i][j] = val;
+            }
+        }
+        return new Matrix(data);
+    }
+}
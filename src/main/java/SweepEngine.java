@@ -0,0 +1,166 @@
+import drawing.DrawUtils;
+import drawing.ROC;
+import io.ResultsStore;
+import io.ResultsStore.Record;
+import io.Workspace;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * runs {@link Main} over a grid of {@link Main.Parameters}: every dataset is read once and whitened once per
+ * PCA components count, then the runs of the grid share these matrices read-only in parallel, every run gets
+ * its own workspace "./runs/sweep/{dataset}/{parameters}/" and THREADS_PER_RUN solver threads. One line per run
+ * of this sweep is written to "./runs/sweep/{dataset}.tsv", the full evaluation goes to the results store as usual.
+ * <p>
+ * arguments: input folder, dataset ...
+ */
+public class SweepEngine {
+    private static final String SWEEP = "./runs/sweep/";
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * CPLEX threads of one run, THREADS / THREADS_PER_RUN runs go in parallel
+     */
+    private static final int THREADS_PER_RUN = 2;
+
+    // the grid:
+    private static final double[] INF = {100, 1000, 10000};
+    private static final double[] STEP = {0.01, 0.001};
+    private static final int[] TL = {50};
+    private static final int[] PCA_COMPONENTS_NUM = {2, 3, 4};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new RuntimeException("expected input folder and datasets in arguments");
+        }
+        ROC.setHeadless(true);
+        String input = args[0].endsWith("/") ? args[0] : args[0] + "/";
+        List<String> datasets = Arrays.asList(args).subList(1, args.length);
+
+        List<Main.Parameters> grid = grid(INF, STEP, TL, PCA_COMPONENTS_NUM);
+        for (String dataset : datasets) {
+            run(input, dataset, grid, THREADS, THREADS_PER_RUN);
+        }
+    }
+
+    /**
+     * @return every combination of the values, runs of one PCA components count are adjacent
+     */
+    public static List<Main.Parameters> grid(double[] inf, double[] step, int[] tl, int[] pcaComponents) {
+        List<Main.Parameters> res = new ArrayList<>();
+        for (int R : pcaComponents) {
+            for (int timeLimit : tl) {
+                for (double s : step) {
+                    for (double i : inf) {
+                        res.add(new Main.Parameters(i, s, timeLimit, R));
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * runs the grid on one dataset and writes its table, a failed run is written to the logs of its workspace
+     * and marked in the table
+     *
+     * @param threads cores to share, every run gets threadsPerRun of them
+     */
+    public static void run(String input, String dataset, List<Main.Parameters> grid, int threads, int threadsPerRun) throws Exception {
+        int perRun = Math.max(1, Math.min(threadsPerRun, threads));
+        Main reader = new Main(dataset, Workspace.create(input, SWEEP, dataset));
+        Main.Dataset data = reader.read();
+
+        Map<Main.Parameters, String> status = new ConcurrentHashMap<>();
+        Map<Main.Parameters, List<Record>> records = new ConcurrentHashMap<>();
+        Map<Integer, CompletableFuture<Main.Prepared>> whitened = new HashMap<>();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads / perRun));
+        try {
+            for (Main.Parameters parameters : grid) {
+                CompletableFuture<Main.Prepared> prepared = whitened.computeIfAbsent(
+                        parameters.pcaComponents(),
+                        R -> CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return reader.whiten(data, R);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }, pool)
+                );
+                Workspace workspace = Workspace.create(input, SWEEP + dataset, parameters.name());
+                runs.add(prepared.thenAcceptAsync(p -> {
+                    try {
+                        records.put(parameters, new Main(dataset, workspace, parameters, perRun).solve(data, p));
+                        status.put(parameters, "ok");
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }, pool).exceptionally(e -> {
+                    status.put(parameters, "failed");
+                    try (PrintWriter log = new PrintWriter(workspace.logs() + "error.txt", StandardCharsets.UTF_8)) {
+                        e.printStackTrace(log);
+                    } catch (IOException ignored) {
+                        e.printStackTrace();
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdown();
+            if (!pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("sweep runs not finished");
+            }
+        }
+
+        ResultsStore.open(DrawUtils.RESULTS).flush();
+        writeTable(SWEEP + dataset + ".tsv", dataset, grid, status, records);
+    }
+
+    // private methods:
+
+    /**
+     * one line per run: parameters, solving time and the best found F1 and AUC ROC over all modules,
+     * from the records the runs of this sweep returned
+     */
+    private static void writeTable(
+            String file,
+            String dataset,
+            List<Main.Parameters> grid,
+            Map<Main.Parameters, String> status,
+            Map<Main.Parameters, List<Record>> records
+    ) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("inf\tstep\ttl\tpca_components\ttitle\tstatus\ttime_ms\tf1score\tauc_roc");
+            for (Main.Parameters parameters : grid) {
+                String title = new Main(dataset, Workspace.DEFAULT, parameters).title();
+                long timeMs = -1;
+                double f1score = Double.NaN;
+                double aucRoc = Double.NaN;
+                for (Record record : records.getOrDefault(parameters, List.of())) {
+                    if (record.method().equals("x") || record.method().equals("y")) {
+                        timeMs = Math.max(timeMs, record.timeMs());
+                        f1score = Double.isNaN(f1score) ? record.f1score() : Math.max(f1score, record.f1score());
+                        aucRoc = Double.isNaN(aucRoc) ? record.aucRoc() : Math.max(aucRoc, record.aucRoc());
+                    }
+                }
+                String state = status.getOrDefault(parameters, "failed");
+                if (state.equals("ok") && timeMs < 0) {
+                    state = "no solution";
+                }
+                out.println(parameters.INF() + "\t" + parameters.STEP() + "\t" + parameters.TL() + "\t"
+                        + parameters.pcaComponents() + "\t" + title + "\t" + state + "\t"
+                        + timeMs + "\t" + f1score + "\t" + aucRoc);
+            }
+        }
+    }
+}
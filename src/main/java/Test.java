@@ -1,11 +1,25 @@
+import analysis.Wilcoxon;
 import drawing.DrawAPI;
+import drawing.DrawUtils;
+import drawing.ROC;
+import io.ResultsStore;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 
 public class Test {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws FileNotFoundException {
         for (int i = 2; i <= 2; i++) {
             Main main = new Main("a" + i + "_test_05");
             main.run(null);
         }
-        DrawAPI.run();
+        ResultsStore store = ResultsStore.open(DrawUtils.RESULTS);
+        store.exportColumns("./aggregate/results/");
+        try (PrintWriter out = new PrintWriter("./logs/wilcoxon.txt")) {
+            Wilcoxon.report(Wilcoxon.ofSession(store.read(), ResultsStore.SESSION), 2, out);
+        }
+        if (!ROC.isHeadless()) {
+            DrawAPI.run();
+        }
     }
 }
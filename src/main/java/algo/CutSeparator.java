@@ -0,0 +1,235 @@
+package algo;
+
+import graph.Graph;
+import utils.Pair;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Separation of generalized cut constraints for the rooted arborescence model:
+ * <p>
+ * sum(x[e] : e enters S) + sum(r[v] : v in S) >= y[k], for every vertex set S and k in S.
+ * <p>
+ * Violated constraints are found by max-flow/min-cut from a super-source (arcs with capacity r[v])
+ * to every target k. Flow networks and the pool of already found cuts are kept between calls.
+ * Doesn't depend on CPLEX, so it can be used from any solver.
+ */
+public class CutSeparator {
+    private static final double EPS = 1e-6;
+    private static final int MAX_POOL_SIZE = 10000;
+
+    public record Cut(
+            int target,
+            int[] vertices,
+            int[] inEdges,
+            double lhs,
+            double demand
+    ) {
+        public double violation() {
+            return demand - lhs;
+        }
+    }
+
+    private final Graph graph;
+    private final int N;
+    private final int threads;
+
+    private final MaxFlow[] networks;
+    private final ExecutorService executor;
+
+    /**
+     * found cuts by their vertex set
+     */
+    private final Map<BitSet, Cut> pool = new LinkedHashMap<>();
+    private final Set<Integer> lastViolated = new LinkedHashSet<>();
+
+    public CutSeparator(Graph graph, int threads) {
+        if (threads < 1) {
+            throw new RuntimeException("expected positive threads count");
+        }
+        this.graph = graph;
+        this.N = graph.getNodesCount();
+        this.threads = threads;
+        this.networks = new MaxFlow[threads];
+        this.executor = (threads > 1) ? Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "cut-separator");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
+    /**
+     * @param y vertex values (demands), null means 1 for every vertex
+     * @param r root values
+     * @param x directed edge values
+     * @return violated cuts, at most maxCuts, the most violated first
+     */
+    public synchronized List<Cut> separate(double[] y, double[] r, double[] x, int maxCuts) {
+        if (r.length != N || x.length != graph.getEdges().size() || (y != null && y.length != N)) {
+            throw new RuntimeException("unexpected values length in separate");
+        }
+
+        // cheap check of already known cuts before any max-flow
+
+        List<Cut> found = new ArrayList<>();
+        for (Cut cut : pool.values()) {
+            Cut updated = evaluate(cut.vertices, cut.inEdges, cut.target, y, r, x);
+            if (updated.violation() > EPS) {
+                found.add(updated);
+            }
+        }
+        if (!found.isEmpty()) {
+            return top(found, maxCuts);
+        }
+
+        // targets that were violated last time go first
+
+        List<Integer> targets = new ArrayList<>(N);
+        for (int k : lastViolated) {
+            if (demand(y, k) > EPS) targets.add(k);
+        }
+        for (int k = 0; k < N; k++) {
+            if (!lastViolated.contains(k) && demand(y, k) > EPS) targets.add(k);
+        }
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            chunks.add(new ArrayList<>());
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            chunks.get(i % threads).add(targets.get(i));
+        }
+
+        if (executor == null) {
+            found.addAll(separateChunk(0, chunks.get(0), y, r, x, maxCuts));
+        } else {
+            List<Future<List<Cut>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final int worker = i;
+                futures.add(executor.submit(() -> separateChunk(worker, chunks.get(worker), y, r, x, maxCuts)));
+            }
+            try {
+                for (Future<List<Cut>> future : futures) {
+                    found.addAll(future.get());
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        Map<BitSet, Cut> unique = new LinkedHashMap<>();
+        for (Cut cut : found) {
+            unique.putIfAbsent(key(cut.vertices), cut);
+        }
+        List<Cut> ans = top(new ArrayList<>(unique.values()), maxCuts);
+
+        lastViolated.clear();
+        for (Cut cut : ans) {
+            lastViolated.add(cut.target);
+            if (pool.size() < MAX_POOL_SIZE) {
+                pool.put(key(cut.vertices), cut);
+            }
+        }
+
+        return ans;
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // private methods:
+
+    private List<Cut> separateChunk(int worker, List<Integer> targets, double[] y, double[] r, double[] x, int maxCuts) {
+        if (networks[worker] == null) {
+            networks[worker] = new MaxFlow(graph);
+        }
+        MaxFlow network = networks[worker];
+        network.setCapacities(x, r);
+
+        List<Cut> ans = new ArrayList<>();
+        boolean[] covered = new boolean[N];
+
+        for (int k : targets) {
+            if (covered[k]) {
+                continue;
+            }
+            double demand = demand(y, k);
+            double value = network.solve(k, demand);
+            if (value >= demand - EPS) {
+                continue;
+            }
+
+            boolean[] sourceSide = network.sourceSide();
+            Cut cut = buildCut(sourceSide, k, y, r, x);
+            if (cut.violation() > EPS) {
+                ans.add(cut);
+                for (int v : cut.vertices) {
+                    covered[v] = true;
+                }
+            }
+            if (ans.size() >= maxCuts) {
+                break;
+            }
+        }
+
+        return ans;
+    }
+
+    private Cut buildCut(boolean[] sourceSide, int target, double[] y, double[] r, double[] x) {
+        int count = 0;
+        for (int v = 0; v < N; v++) {
+            if (!sourceSide[v]) count++;
+        }
+        int[] vertices = new int[count];
+        int ind = 0;
+        for (int v = 0; v < N; v++) {
+            if (!sourceSide[v]) vertices[ind++] = v;
+        }
+
+        List<Integer> inEdges = new ArrayList<>();
+        for (int v : vertices) {
+            for (Pair<Integer, Long> pair : graph.edgesOf(v)) {
+                if (sourceSide[pair.first]) {
+                    inEdges.add(Graph.companionEdge(pair.second.intValue()));
+                }
+            }
+        }
+
+        return evaluate(vertices, inEdges.stream().mapToInt(Integer::intValue).toArray(), target, y, r, x);
+    }
+
+    /**
+     * @return the vertex set, equal for equal sets whatever the order of the vertices
+     */
+    private static BitSet key(int[] vertices) {
+        BitSet res = new BitSet();
+        for (int v : vertices) {
+            res.set(v);
+        }
+        return res;
+    }
+
+    private static Cut evaluate(int[] vertices, int[] inEdges, int target, double[] y, double[] r, double[] x) {
+        double lhs = 0;
+        for (int num : inEdges) {
+            lhs += x[num];
+        }
+        for (int v : vertices) {
+            lhs += r[v];
+        }
+        return new Cut(target, vertices, inEdges, lhs, demand(y, target));
+    }
+
+    private static double demand(double[] y, int k) {
+        return (y == null) ? 1 : y[k];
+    }
+
+    private static List<Cut> top(List<Cut> cuts, int maxCuts) {
+        cuts.sort(Comparator.comparingDouble(Cut::violation).reversed());
+        return (cuts.size() > maxCuts) ? new ArrayList<>(cuts.subList(0, maxCuts)) : cuts;
+    }
+}
@@ -1,12 +1,40 @@
 package algo;
 
+import graph.EdgeSelection;
 import graph.Graph;
 import utils.Pair;
+import utils.Parallel;
 
 import java.util.*;
 
 public class MST {
-    public static void solve(
+    /**
+     * positive (x, q, r) and negative (y, t, s) sides on separate threads, each side may use its own graph
+     *
+     * @return tree edges of the positive and negative sides
+     */
+    public static Pair<EdgeSelection, EdgeSelection> solveBothSides(
+            Graph positiveGraph,
+            double[] x,
+            double[] q,
+            double[] r,
+            Graph negativeGraph,
+            double[] y,
+            double[] t,
+            double[] s,
+            double STEP
+    ) {
+        return Parallel.both(
+                () -> solve(positiveGraph, x, q, r, STEP),
+                () -> solve(negativeGraph, y, t, s, STEP)
+        );
+    }
+
+    /**
+     * @param x edge weights, not modified
+     * @return tree edges, oriented from the root
+     */
+    public static EdgeSelection solve(
             Graph graph,
             double[] x,
             double[] q,
@@ -61,10 +89,14 @@ public class MST {
             g.get(edge.second).add(new Pair<>(edge.first, (long) Graph.companionEdge(num)));
         }
 
-        main_solve(g, x, q, r, STEP);
+        EdgeSelection tree = new EdgeSelection(x.length);
+
+        main_solve(g, tree, q, r, STEP);
+
+        return tree;
     }
 
-    private static void main_solve(List<List<Pair<Integer, Long>>> g, double[] x, double[] q, double[] r, double STEP) {
+    private static void main_solve(List<List<Pair<Integer, Long>>> g, EdgeSelection x, double[] q, double[] r, double STEP) {
         double q_max = -1;
         int root = -1;
         for (int i = 0; i < q.length; i++) {
@@ -88,8 +120,6 @@ public class MST {
         Arrays.fill(r, 0);
         r[root] = 1;
 
-        Arrays.fill(x, 0);
-
         //check_mst_ordered(g, q, x, root, STEP, false);
         check_mst_ordered(g, q, x, root, STEP, true);
         check_mst_ordered(g, q, x, root, STEP, false);
@@ -176,7 +206,7 @@ public class MST {
         }
     }
 
-    private static void check_mst_ordered(List<List<Pair<Integer, Long>>> g, double[] q, double[] x, int root, double STEP, boolean MODIFY) {
+    private static void check_mst_ordered(List<List<Pair<Integer, Long>>> g, double[] q, EdgeSelection x, int root, double STEP, boolean MODIFY) {
         int[] vis = new int[g.size()];
 
         check_dfs_mst_ordered(g, vis, q, x, root, -1, STEP, MODIFY);
@@ -186,13 +216,13 @@ public class MST {
         }
     }
 
-    private static void check_dfs_mst_ordered(List<List<Pair<Integer, Long>>> g, int[] vis, double[] q, double[] x, int v, int parent, double STEP, boolean MODIFY) {
+    private static void check_dfs_mst_ordered(List<List<Pair<Integer, Long>>> g, int[] vis, double[] q, EdgeSelection x, int v, int parent, double STEP, boolean MODIFY) {
         vis[v] = 1;
         for (Pair<Integer, Long> pair : g.get(v)) {
             int to = pair.first;
             if (to != parent) {
                 if (vis[to] == 0) {
-                    x[pair.second.intValue()] = 1;
+                    x.add(pair.second.intValue());
                     if (q[v] < q[to]) {
                         throw new RuntimeException("something wrong");
                     }
@@ -0,0 +1,164 @@
+package algo;
+
+import graph.Graph;
+import utils.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Dinic max-flow on the primitive graph with an extra super-source vertex.
+ * The network topology is built once, only capacities change between calls.
+ */
+public class MaxFlow {
+    private static final double EPS = 1e-9;
+
+    private final int N;
+    private final int source;
+
+    private final int[] head;
+    private final int[] next;
+    private final int[] to;
+    private final double[] cap;
+    private final double[] flow;
+
+    private final int[] level;
+    private final int[] iter;
+    private final int[] queue;
+
+    public MaxFlow(Graph graph) {
+        this.N = graph.getNodesCount();
+        this.source = N;
+
+        int E = graph.getEdges().size();
+        int arcs = 2 * E + 2 * N;
+
+        this.head = new int[N + 1];
+        this.next = new int[arcs];
+        this.to = new int[arcs];
+        this.cap = new double[arcs];
+        this.flow = new double[arcs];
+
+        this.level = new int[N + 1];
+        this.iter = new int[N + 1];
+        this.queue = new int[N + 1];
+
+        Arrays.fill(head, -1);
+
+        // arc 2 * num is the directed edge num, arc 2 * num + 1 is its residual
+        for (int num = 0; num < E; num++) {
+            Pair<Integer, Integer> edge = graph.getEdges().get(num);
+            addArc(2 * num, edge.first, edge.second);
+            addArc(2 * num + 1, edge.second, edge.first);
+        }
+
+        // arc 2 * E + 2 * v is the source arc to v, next one is its residual
+        for (int v = 0; v < N; v++) {
+            addArc(2 * E + 2 * v, source, v);
+            addArc(2 * E + 2 * v + 1, v, source);
+        }
+    }
+
+    private void addArc(int id, int from, int dest) {
+        to[id] = dest;
+        next[id] = head[from];
+        head[from] = id;
+    }
+
+    public void setCapacities(double[] x, double[] r) {
+        int E = x.length;
+        if (2 * E + 2 * N != cap.length || r.length != N) {
+            throw new RuntimeException("unexpected capacities length");
+        }
+        for (int num = 0; num < E; num++) {
+            cap[2 * num] = Math.max(0, x[num]);
+            cap[2 * num + 1] = 0;
+        }
+        for (int v = 0; v < N; v++) {
+            cap[2 * E + 2 * v] = Math.max(0, r[v]);
+            cap[2 * E + 2 * v + 1] = 0;
+        }
+    }
+
+    /**
+     * @return max-flow value from the super-source to target, but not more than limit
+     */
+    public double solve(int target, double limit) {
+        Arrays.fill(flow, 0);
+        double total = 0;
+        while (total < limit - EPS && bfs(target)) {
+            System.arraycopy(head, 0, iter, 0, head.length);
+            double pushed;
+            while ((pushed = dfs(source, target, limit - total)) > EPS) {
+                total += pushed;
+                if (total >= limit - EPS) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * valid after solve, marks vertices reachable from the super-source in the residual network
+     */
+    public boolean[] sourceSide() {
+        boolean[] vis = new boolean[N + 1];
+        int qh = 0, qt = 0;
+        queue[qt++] = source;
+        vis[source] = true;
+        while (qh < qt) {
+            int v = queue[qh++];
+            for (int id = head[v]; id != -1; id = next[id]) {
+                if (!vis[to[id]] && residual(id) > EPS) {
+                    vis[to[id]] = true;
+                    queue[qt++] = to[id];
+                }
+            }
+        }
+        return vis;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    private double residual(int id) {
+        return cap[id] - flow[id];
+    }
+
+    private boolean bfs(int target) {
+        Arrays.fill(level, -1);
+        int qh = 0, qt = 0;
+        queue[qt++] = source;
+        level[source] = 0;
+        while (qh < qt) {
+            int v = queue[qh++];
+            for (int id = head[v]; id != -1; id = next[id]) {
+                if (level[to[id]] == -1 && residual(id) > EPS) {
+                    level[to[id]] = level[v] + 1;
+                    queue[qt++] = to[id];
+                }
+            }
+        }
+        return level[target] != -1;
+    }
+
+    private double dfs(int v, int target, double pushed) {
+        if (v == target) {
+            return pushed;
+        }
+        for (; iter[v] != -1; iter[v] = next[iter[v]]) {
+            int id = iter[v];
+            int u = to[id];
+            if (level[u] == level[v] + 1 && residual(id) > EPS) {
+                double d = dfs(u, target, Math.min(pushed, residual(id)));
+                if (d > EPS) {
+                    flow[id] += d;
+                    flow[id ^ 1] -= d;
+                    return d;
+                }
+            }
+        }
+        return 0;
+    }
+}
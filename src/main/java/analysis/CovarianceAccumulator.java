@@ -0,0 +1,181 @@
+package analysis;
+
+import utils.DenseMatrix;
+import utils.Matrix;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Streaming mean / variance / covariance of rows (Welford update),
+ * partial accumulators over disjoint rows are merged by Chan et al. formula.
+ */
+public class CovarianceAccumulator {
+    private static final int ROWS_PER_TASK = 2048;
+
+    private final int D;
+    private long n = 0;
+    private final double[] mean;
+    /**
+     * sum of (x_j - mean_j) * (x_l - mean_l), upper triangle j <= l, row-major D * D
+     */
+    private final double[] comoment;
+    private final double[] delta;
+
+    public CovarianceAccumulator(int D) {
+        this.D = D;
+        this.mean = new double[D];
+        this.comoment = new double[D * D];
+        this.delta = new double[D];
+    }
+
+    public void add(double[] data, int offset) {
+        n++;
+        for (int j = 0; j < D; j++) {
+            delta[j] = data[offset + j] - mean[j];
+            mean[j] += delta[j] / n;
+        }
+        for (int j = 0; j < D; j++) {
+            double dj = delta[j];
+            int base = j * D;
+            for (int l = j; l < D; l++) {
+                comoment[base + l] += dj * (data[offset + l] - mean[l]);
+            }
+        }
+    }
+
+    public void add(float[] data, int offset) {
+        n++;
+        for (int j = 0; j < D; j++) {
+            delta[j] = data[offset + j] - mean[j];
+            mean[j] += delta[j] / n;
+        }
+        for (int j = 0; j < D; j++) {
+            double dj = delta[j];
+            int base = j * D;
+            for (int l = j; l < D; l++) {
+                comoment[base + l] += dj * (data[offset + l] - mean[l]);
+            }
+        }
+    }
+
+    public void add(double[] row) {
+        add(row, 0);
+    }
+
+    public void merge(CovarianceAccumulator other) {
+        if (other.D != D) {
+            throw new RuntimeException("expected accumulators of the same dimension");
+        }
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            n = other.n;
+            System.arraycopy(other.mean, 0, mean, 0, D);
+            System.arraycopy(other.comoment, 0, comoment, 0, D * D);
+            return;
+        }
+        long total = n + other.n;
+        double cff = (double) n * other.n / total;
+        for (int j = 0; j < D; j++) {
+            delta[j] = other.mean[j] - mean[j];
+        }
+        for (int j = 0; j < D; j++) {
+            int base = j * D;
+            for (int l = j; l < D; l++) {
+                comoment[base + l] += other.comoment[base + l] + delta[j] * delta[l] * cff;
+            }
+        }
+        for (int j = 0; j < D; j++) {
+            mean[j] += delta[j] * other.n / total;
+        }
+        n = total;
+    }
+
+    public long count() {
+        return n;
+    }
+
+    public double[] mean() {
+        return mean.clone();
+    }
+
+    /**
+     * population variance, divided by n
+     */
+    public double[] variance() {
+        double[] res = new double[D];
+        for (int j = 0; j < D; j++) {
+            res[j] = comoment[j * D + j] / n;
+        }
+        return res;
+    }
+
+    /**
+     * population covariance, divided by n
+     */
+    public Matrix covariance() {
+        double[][] res = new double[D][D];
+        for (int j = 0; j < D; j++) {
+            for (int l = j; l < D; l++) {
+                res[j][l] = comoment[j * D + l] / n;
+                res[l][j] = res[j][l];
+            }
+        }
+        return new Matrix(res);
+    }
+
+    /**
+     * single read of the data, row ranges are accumulated in parallel by fork-join and merged
+     */
+    public static CovarianceAccumulator of(Matrix matrix) {
+        DenseMatrix packed = matrix.dense().pack(true);
+        return ForkJoinPool.commonPool().invoke(packed.isFloat()
+                ? new Task(null, packed.rowMajorFloats(), packed.numCols(), 0, packed.numRows())
+                : new Task(packed.rowMajorData(), null, packed.numCols(), 0, packed.numRows())
+        );
+    }
+
+    private static class Task extends RecursiveTask<CovarianceAccumulator> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double[] data;
+        private final float[] floats;
+        private final int D;
+        private final int from;
+        private final int to;
+
+        private Task(double[] data, float[] floats, int D, int from, int to) {
+            this.data = data;
+            this.floats = floats;
+            this.D = D;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CovarianceAccumulator compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                CovarianceAccumulator acc = new CovarianceAccumulator(D);
+                for (int row = from; row < to; row++) {
+                    if (floats != null) {
+                        acc.add(floats, row * D);
+                    } else {
+                        acc.add(data, row * D);
+                    }
+                }
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            Task left = new Task(data, floats, D, from, mid);
+            left.fork();
+            CovarianceAccumulator right = new Task(data, floats, D, mid, to).compute();
+            CovarianceAccumulator ans = left.join();
+            ans.merge(right);
+            return ans;
+        }
+    }
+}
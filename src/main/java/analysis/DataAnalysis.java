@@ -1,13 +1,12 @@
 package analysis;
 
+import utils.DenseMatrix;
 import utils.Matrix;
 import utils.Pair;
 
 import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-
-import static utils.Matrix.scalProd;
+import java.util.stream.IntStream;
 
 /**
  * static class
@@ -15,120 +14,123 @@ import static utils.Matrix.scalProd;
 public class DataAnalysis {
 
     /**
-     * private constants
+     * constants
+     */
+    public static final int PCA_COMPONENTS_NUM = 2;
+    /**
+     * from this number of columns the covariance matrix is not formed and randomized PCA is used.
+     * PcaBenchmark on 2000 rows, one core (exact / randomized ms): 64 cols 57 / 72, 128 cols 139 / 80,
+     * 256 cols 358 / 118, 1024 cols 15434 / 394, components equal up to 1e-15. The crossover is between 64 and 128,
+     * the threshold stays above it because the benchmark data is low rank, which favours the randomized method
      */
-    private static final int PCA_COMPONENTS_NUM = 2;
+    public static final int RANDOMIZED_PCA_MIN_COLS = 256;
     private static final double EPS = 1e-6;
-    private static final String F_DEBUG = "./logs/data_analysis_debug.txt";
-    private static final String F_OUT = "./logs/data_analysis_out.txt";
 
     /**
      * public static methods
      */
 
     public static Matrix whitening(Matrix matrix) {
-        try {
-            try (PrintWriter out = new PrintWriter(F_OUT, StandardCharsets.UTF_8)) {
-                try (PrintWriter debug = new PrintWriter(F_DEBUG, StandardCharsets.UTF_8)) {
-
-                    Matrix st_mtx = DataAnalysis.standardization(matrix, debug, true, true);
-
-                    Matrix cov_mtx = DataAnalysis.getCovMatrix(st_mtx, debug, true);
-                    debug.println("cov_mtx:");
-                    debug.println(cov_mtx);
+        return whitening(matrix, PCA_COMPONENTS_NUM, null).matrix();
+    }
 
-                    Matrix cov_mtx_2 = DataAnalysis.getCovMatrix2(st_mtx);
-                    debug.println("cov_mtx_2:");
-                    debug.println(cov_mtx_2);
+    /**
+     * pure in-memory whitening: standardization, PCA to R components, standardization of components
+     *
+     * @param debug diagnostics output, only small covariance matrices are printed, null for no diagnostics
+     */
+    public static Whitened whitening(Matrix matrix, int R, PrintWriter debug) {
+        boolean DEBUG = (debug != null);
 
-                    Matrix pca_mtx = DataAnalysis.pca(st_mtx, debug, PCA_COMPONENTS_NUM);
+        Matrix st_mtx = DataAnalysis.standardization(matrix, debug, DEBUG, true);
 
-                    Matrix cov_mtx_pca_mtx = DataAnalysis.getCovMatrix(pca_mtx, debug, true);
-                    debug.println("cov_mtx_pca_mtx:");
-                    debug.println(cov_mtx_pca_mtx);
+        Pair<double[], double[][]> basis;
+        if (st_mtx.numCols() >= RANDOMIZED_PCA_MIN_COLS) {
+            basis = RandomizedPca.basis(st_mtx, R);
+        } else {
+            Matrix cov_mtx = DataAnalysis.getCovMatrix(st_mtx, debug, DEBUG);
+            if (DEBUG) {
+                debug.println("cov_mtx:");
+                debug.println(cov_mtx);
+            }
+            basis = DataAnalysis.pcaBasis(cov_mtx, debug, R);
+        }
+        Matrix pca_mtx = DataAnalysis.project(st_mtx, basis.second);
 
-                    Matrix final_mtx = DataAnalysis.standardization(pca_mtx, debug, true, true);
-                    out.println("final_mtx:");
-                    out.println(final_mtx);
+        if (DEBUG) {
+            Matrix cov_mtx_pca_mtx = DataAnalysis.getCovMatrix(pca_mtx, debug, true);
+            debug.println("cov_mtx_pca_mtx:");
+            debug.println(cov_mtx_pca_mtx);
+        }
 
-                    Matrix cov_final_mtx = DataAnalysis.getCovMatrix(final_mtx, debug, true);
-                    debug.println("cov_final_mtx:");
-                    debug.println(cov_final_mtx);
+        Matrix final_mtx = DataAnalysis.standardization(pca_mtx, debug, DEBUG, true);
 
-                    return final_mtx;
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        if (DEBUG) {
+            Matrix cov_final_mtx = DataAnalysis.getCovMatrix(final_mtx, debug, true);
+            debug.println("cov_final_mtx:");
+            debug.println(cov_final_mtx);
         }
+
+        return new Whitened(final_mtx, basis.first, basis.second);
     }
 
     public static Matrix standardization(Matrix matrix, PrintWriter out, boolean DEBUG, boolean deviation) {
         int components = matrix.numCols();
         int rows = matrix.numRows();
 
-        double[][] res = new double[rows][components];
-
         if (DEBUG) {
             out.println("# components number: " + components);
         }
 
-        for (int component = 0; component < components; component++) {
-            double E = 0;
-
-            for (int row = 0; row < rows; row++) {
-                E += matrix.getElem(row, component);
-            }
-
-            E /= rows;
-
-            double D = 0;
-
-            for (int row = 0; row < rows; row++) {
-                res[row][component] = matrix.getElem(row, component) - E;
-                D += res[row][component] * res[row][component];
-            }
-
-            D /= rows;
+        CovarianceAccumulator acc = CovarianceAccumulator.of(matrix);
+        double[] EE = acc.mean();
+        double[] DD = acc.variance();
 
-            double st_dev = Math.sqrt(D);
-
-            if (deviation) {
-                for (int row = 0; row < rows; row++) {
-                    res[row][component] /= st_dev;
-                }
-            }
+        double[] cff = new double[components];
+        for (int component = 0; component < components; component++) {
+            double st_dev = Math.sqrt(DD[component]);
+            cff[component] = deviation ? 1 / st_dev : 1;
 
             if (DEBUG) {
                 out.println();
                 out.println("# current component: " + component);
-                out.println("# E: " + E + " ; D: " + D + " ; st_dev: " + st_dev);
+                out.println("# E: " + EE[component] + " ; D: " + DD[component] + " ; st_dev: " + st_dev);
             }
+        }
 
+        if (matrix.dense().isFloat()) {
+            float[] data = matrix.dense().rowMajorFloats();
+            float[] res = new float[data.length];
+            IntStream.range(0, rows).parallel().forEach(row -> {
+                int base = row * components;
+                for (int component = 0; component < components; component++) {
+                    res[base + component] = (float) ((data[base + component] - EE[component]) * cff[component]);
+                }
+            });
+            return new Matrix(DenseMatrix.wrap(res, rows, components, true));
         }
 
-        return new Matrix(res);
+        double[] data = matrix.dense().rowMajorData();
+        double[] res = new double[data.length];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            int base = row * components;
+            for (int component = 0; component < components; component++) {
+                res[base + component] = (data[base + component] - EE[component]) * cff[component];
+            }
+        });
+
+        return new Matrix(DenseMatrix.wrap(res, rows, components, true));
     }
 
     public static Matrix getCovMatrix(Matrix matrix, PrintWriter out, boolean DEBUG) {
         int components = matrix.numCols();
-        int rows = matrix.numRows();
 
         if (DEBUG) {
             out.println("# components number: " + components);
         }
 
-        double[] EE = new double[components];
-
-        for (int component = 0; component < components; component++) {
-            EE[component] = 0;
-
-            for (int row = 0; row < rows; row++) {
-                EE[component] += matrix.getElem(row, component);
-            }
-
-            EE[component] /= rows;
-        }
+        CovarianceAccumulator acc = CovarianceAccumulator.of(matrix);
+        double[] EE = acc.mean();
 
         for (double E : EE) {
             if (E > EPS) {
@@ -145,54 +147,49 @@ public class DataAnalysis {
             out.println();
         }
 
-        double[][] cov_matrix = new double[components][components];
-
-        for (int c1 = 0; c1 < components; c1++) {
-            for (int c2 = 0; c2 < components; c2++) {
-
-                cov_matrix[c1][c2] = 0;
-
-                for (int row = 0; row < rows; row++) {
-                    cov_matrix[c1][c2] += matrix.getElem(row, c1) * matrix.getElem(row, c2);
-                }
-
-                cov_matrix[c1][c2] /= rows;
-
-            }
-        }
-
-        return new Matrix(cov_matrix);
+        return acc.covariance();
     }
 
     public static Matrix getCovMatrix2(Matrix matrix) {
-        int N = matrix.numRows();
-        Matrix matrix2 = matrix.transpose();
-        return matrix2.mult(matrix).div(N);
+        return CovarianceAccumulator.of(matrix).covariance();
     }
 
     public static Matrix pca(Matrix matrix, PrintWriter err, int R) {
-        Matrix cov_matrix = getCovMatrix2(matrix);
-
-        Pair<double[], double[][]> decompose = cov_matrix.decomposition(err);
-
-        err.println("# pca debug: ");
-        err.println(Arrays.toString(decompose.first));
-        for (int i = 0; i < R; i++) {
-            err.println("# eigen " + i + ":");
-            err.println(decompose.first[i]);
-            err.println(Arrays.toString(decompose.second[i]));
+        if (matrix.numCols() >= RANDOMIZED_PCA_MIN_COLS) {
+            return project(matrix, RandomizedPca.basis(matrix, R).second);
         }
-        err.println();
+        return pca(matrix, getCovMatrix2(matrix), err, R);
+    }
 
-        double[][] newData = new double[matrix.numRows()][R];
+    /**
+     * @param cov_matrix already computed covariance matrix of the zero-mean matrix
+     */
+    public static Matrix pca(Matrix matrix, Matrix cov_matrix, PrintWriter err, int R) {
+        return project(matrix, pcaBasis(cov_matrix, err, R).second);
+    }
 
-        for (int i = 0; i < matrix.numRows(); i++) {
-            for (int j = 0; j < R; j++) {
-                newData[i][j] = scalProd(matrix.getRow(i), decompose.second[j]);
+    /**
+     * @return top R eigen values and eigen vectors of the covariance matrix
+     */
+    public static Pair<double[], double[][]> pcaBasis(Matrix cov_matrix, PrintWriter err, int R) {
+        Pair<double[], double[][]> decompose = cov_matrix.decomposition(err);
+
+        if (err != null) {
+            err.println("# pca debug: ");
+            err.println(Arrays.toString(decompose.first));
+            for (int i = 0; i < R; i++) {
+                err.println("# eigen " + i + ":");
+                err.println(decompose.first[i]);
+                err.println(Arrays.toString(decompose.second[i]));
             }
+            err.println();
         }
 
-        return new Matrix(newData);
+        return new Pair<>(Arrays.copyOf(decompose.first, R), Arrays.copyOf(decompose.second, R));
+    }
+
+    public static Matrix project(Matrix matrix, double[][] basis) {
+        return new Matrix(matrix.dense().mult(DenseMatrix.of(basis).transpose()));
     }
 
 }
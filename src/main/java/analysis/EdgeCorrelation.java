@@ -0,0 +1,120 @@
+package analysis;
+
+import graph.Graph;
+import utils.DenseMatrix;
+import utils.Matrix;
+import utils.Pair;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.IntStream;
+
+/**
+ * static class
+ * <p>
+ * Pearson correlation of the expression profiles (matrix rows) of both endpoints of every graph edge.
+ * Rows are centered and normalized once into one contiguous array, then every edge is a single
+ * unrolled dot product. The result is indexed by undirected edge id: directed edges 2 * id and 2 * id + 1.
+ */
+public class EdgeCorrelation {
+
+    /**
+     * constants
+     */
+    private static final String SUFFIX = ".corr";
+    private static final double EPS = 1e-12;
+
+    /**
+     * public static methods
+     */
+
+    public static double[] compute(Matrix matrix, Graph graph) {
+        if (matrix.numRows() != graph.getNodesCount()) {
+            throw new RuntimeException("expected matrix row for every graph vertex");
+        }
+        int D = matrix.numCols();
+        double[] z = normalizedRows(matrix);
+
+        double[] res = new double[graph.getEdges().size() / 2];
+        IntStream.range(0, res.length).parallel().forEach(id -> {
+            Pair<Integer, Integer> edge = graph.getEdges().get(2 * id);
+            res[id] = DenseMatrix.dot(z, edge.first * D, z, edge.second * D, 0, D);
+        });
+        return res;
+    }
+
+    /**
+     * reads correlations from graphFile + ".corr" if it was computed from the same matrix and graph files,
+     * otherwise computes and writes them there
+     *
+     * @param matrixFile file the matrix was read from, the cache is keyed by path, size and modification time
+     *                   of both files instead of their content
+     */
+    public static double[] cached(Matrix matrix, Graph graph, String matrixFile, String graphFile) {
+        Path file = Path.of(graphFile + SUFFIX);
+        try {
+            String key = key(Path.of(matrixFile)) + "|" + key(Path.of(graphFile));
+            if (Files.exists(file)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    if (in.readUTF().equals(key)) {
+                        double[] res = new double[in.readInt()];
+                        for (int i = 0; i < res.length; i++) {
+                            res[i] = in.readDouble();
+                        }
+                        return res;
+                    }
+                }
+            }
+
+            double[] res = compute(matrix, graph);
+            Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "corr", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeUTF(key);
+                out.writeInt(res.length);
+                for (double val : res) {
+                    out.writeDouble(val);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return res;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // private methods:
+
+    /**
+     * rows centered to zero mean and scaled to unit L2-norm, constant rows become zero
+     */
+    private static double[] normalizedRows(Matrix matrix) {
+        int N = matrix.numRows();
+        int D = matrix.numCols();
+        DenseMatrix packed = matrix.dense().pack(true);
+        double[] z = new double[Math.multiplyExact(N, D)];
+        IntStream.range(0, N).parallel().forEach(row -> {
+            int base = row * D;
+            double mean = 0;
+            for (int j = 0; j < D; j++) {
+                z[base + j] = packed.get(row, j);
+                mean += z[base + j];
+            }
+            mean /= D;
+            for (int j = 0; j < D; j++) {
+                z[base + j] -= mean;
+            }
+            double norm = Math.sqrt(DenseMatrix.dot(z, base, z, base, 0, D));
+            double cff = (norm < EPS) ? 0 : 1 / norm;
+            for (int j = 0; j < D; j++) {
+                z[base + j] *= cff;
+            }
+        });
+        return z;
+    }
+
+    private static String key(Path file) throws IOException {
+        return file.toAbsolutePath().normalize() + "," + Files.size(file) + "," + Files.getLastModifiedTime(file).toMillis();
+    }
+}
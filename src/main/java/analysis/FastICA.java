@@ -0,0 +1,240 @@
+package analysis;
+
+import utils.DenseMatrix;
+import utils.Matrix;
+import utils.Pair;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * FastICA fixed-point iteration on already whitened data (rows are samples, columns are components),
+ * restarts from different random unmixing matrices run in parallel and the one with the largest
+ * negentropy approximation is kept, symmetric updates are parallel across components.
+ */
+public class FastICA {
+    private static final double TOLERANCE = 1e-4;
+    private static final int MAX_ITERATIONS = 200;
+    private static final long SEED = 42;
+
+    public enum Algorithm {
+        DEFLATION,
+        SYMMETRIC
+    }
+
+    public enum Nonlinearity {
+        /**
+         * G(u) = log cosh u
+         */
+        LOGCOSH(0.3745672075),
+        /**
+         * G(u) = -exp(-u^2 / 2)
+         */
+        EXP(-0.7071067812);
+
+        /**
+         * E[G(nu)] for standard gaussian nu
+         */
+        private final double gaussianMean;
+
+        Nonlinearity(double gaussianMean) {
+            this.gaussianMean = gaussianMean;
+        }
+
+        private double contrast(double u) {
+            return switch (this) {
+                case LOGCOSH -> Math.abs(u) + Math.log1p(Math.exp(-2 * Math.abs(u))) - Math.log(2);
+                case EXP -> -Math.exp(-u * u / 2);
+            };
+        }
+    }
+
+    public record Result(double[][] unmixing, Matrix sources, double negentropy) {
+    }
+
+    private final Algorithm algorithm;
+    private final Nonlinearity nonlinearity;
+    private final int restarts;
+    private final long seed;
+
+    public FastICA(Algorithm algorithm, Nonlinearity nonlinearity, int restarts) {
+        this(algorithm, nonlinearity, restarts, SEED);
+    }
+
+    public FastICA(Algorithm algorithm, Nonlinearity nonlinearity, int restarts, long seed) {
+        if (restarts < 1) {
+            throw new RuntimeException("expected at least one restart");
+        }
+        this.algorithm = algorithm;
+        this.nonlinearity = nonlinearity;
+        this.restarts = restarts;
+        this.seed = seed;
+    }
+
+    /**
+     * @param whitened zero-mean data with identity covariance, e.g. {@link DataAnalysis#whitening}
+     * @return independent components of all columns
+     */
+    public Result fit(Matrix whitened) {
+        return fit(whitened, whitened.numCols());
+    }
+
+    public Result fit(Matrix whitened, int C) {
+        int N = whitened.numRows();
+        int R = whitened.numCols();
+        if (C > R) {
+            throw new RuntimeException("expected components number not greater than columns number");
+        }
+        double[] X = whitened.dense().rowMajorData();
+
+        return IntStream.range(0, restarts).parallel()
+                .mapToObj(restart -> {
+                    double[][] W = randomMatrix(C, R, new Random(seed + restart));
+                    W = (algorithm == Algorithm.SYMMETRIC) ? symmetric(X, N, R, W) : deflation(X, N, R, W);
+                    Matrix sources = DataAnalysis.project(whitened, W);
+                    return new Result(W, sources, negentropy(sources));
+                })
+                .max(Comparator.comparingDouble(Result::negentropy))
+                .orElseThrow();
+    }
+
+    // private methods:
+
+    private double[][] symmetric(double[] X, int N, int R, double[][] W) {
+        W = decorrelate(W);
+        for (int it = 0; it < MAX_ITERATIONS; it++) {
+            double[][] prev = W;
+            double[][] next = new double[W.length][];
+            IntStream.range(0, W.length).parallel().forEach(i -> next[i] = update(X, N, R, prev[i]));
+            W = decorrelate(next);
+
+            double lim = 0;
+            for (int i = 0; i < W.length; i++) {
+                lim = Math.max(lim, Math.abs(Math.abs(Matrix.scalProd(W[i], prev[i])) - 1));
+            }
+            if (lim < TOLERANCE) {
+                break;
+            }
+        }
+        return W;
+    }
+
+    private double[][] deflation(double[] X, int N, int R, double[][] W) {
+        for (int i = 0; i < W.length; i++) {
+            double[] w = orthogonalize(W[i], W, i);
+            for (int it = 0; it < MAX_ITERATIONS; it++) {
+                double[] next = orthogonalize(update(X, N, R, w), W, i);
+                double lim = Math.abs(Math.abs(Matrix.scalProd(next, w)) - 1);
+                w = next;
+                if (lim < TOLERANCE) {
+                    break;
+                }
+            }
+            W[i] = w;
+        }
+        return W;
+    }
+
+    /**
+     * one fixed-point step: w+ = E[x g(w^T x)] - E[g'(w^T x)] w, one pass over rows
+     */
+    private double[] update(double[] X, int N, int R, double[] w) {
+        double[] res = new double[R];
+        double dg = 0;
+        for (int row = 0; row < N; row++) {
+            int base = row * R;
+            double u = DenseMatrix.dot(X, base, w, 0, 0, R);
+            double g;
+            double gd;
+            if (nonlinearity == Nonlinearity.LOGCOSH) {
+                g = Math.tanh(u);
+                gd = 1 - g * g;
+            } else {
+                double e = Math.exp(-u * u / 2);
+                g = u * e;
+                gd = (1 - u * u) * e;
+            }
+            for (int j = 0; j < R; j++) {
+                res[j] += X[base + j] * g;
+            }
+            dg += gd;
+        }
+        for (int j = 0; j < R; j++) {
+            res[j] = (res[j] - dg * w[j]) / N;
+        }
+        return res;
+    }
+
+    /**
+     * sum over components of (E[G(s)] - E[G(nu)])^2
+     */
+    private double negentropy(Matrix sources) {
+        double res = 0;
+        for (int i = 0; i < sources.numCols(); i++) {
+            double[] s = sources.getColumn(i);
+            double mean = 0;
+            for (double val : s) {
+                mean += nonlinearity.contrast(val);
+            }
+            mean /= s.length;
+            res += (mean - nonlinearity.gaussianMean) * (mean - nonlinearity.gaussianMean);
+        }
+        return res;
+    }
+
+    /**
+     * Gram-Schmidt against the first k rows of W, then normalization
+     */
+    private static double[] orthogonalize(double[] w, double[][] W, int k) {
+        double[] res = w.clone();
+        for (int j = 0; j < k; j++) {
+            double proj = Matrix.scalProd(res, W[j]);
+            for (int l = 0; l < res.length; l++) {
+                res[l] -= proj * W[j][l];
+            }
+        }
+        double norm = Math.sqrt(Matrix.scalProd(res, res));
+        for (int l = 0; l < res.length; l++) {
+            res[l] /= norm;
+        }
+        return res;
+    }
+
+    /**
+     * W = (W W^T)^(-1/2) W
+     */
+    private static double[][] decorrelate(double[][] W) {
+        int C = W.length;
+        double[][] gram = new double[C][C];
+        for (int i = 0; i < C; i++) {
+            for (int j = i; j < C; j++) {
+                gram[i][j] = Matrix.scalProd(W[i], W[j]);
+                gram[j][i] = gram[i][j];
+            }
+        }
+        Pair<double[], double[][]> eig = new Matrix(gram).decomposition(null);
+
+        // (W W^T)^(-1/2) = E diag(1 / sqrt(d)) E^T, eigen vectors are rows of eig.second
+        double[][] inv = new double[C][C];
+        for (int k = 0; k < C; k++) {
+            double cff = 1 / Math.sqrt(eig.first[k]);
+            for (int i = 0; i < C; i++) {
+                for (int j = 0; j < C; j++) {
+                    inv[i][j] += eig.second[k][i] * cff * eig.second[k][j];
+                }
+            }
+        }
+        return new Matrix(inv).mult(new Matrix(W)).dense().toArray();
+    }
+
+    private static double[][] randomMatrix(int C, int R, Random random) {
+        double[][] res = new double[C][R];
+        for (int i = 0; i < C; i++) {
+            for (int j = 0; j < R; j++) {
+                res[i][j] = random.nextGaussian();
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,103 @@
+package analysis;
+
+import io.MappedMatrix;
+import utils.DenseMatrix;
+import utils.Matrix;
+import utils.Pair;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * static class
+ * <p>
+ * Whitening of a matrix that does not fit the heap, in two passes over memory-mapped row blocks:
+ * pass 1 accumulates mean and covariance of the raw rows, the covariance of the standardized rows
+ * and of the principal components are then derived analytically, pass 2 applies
+ * standardization, projection and scaling as one affine map and writes the N x R result.
+ * Heap usage is one row block plus D x D, independent of N.
+ */
+public class OutOfCoreWhitening {
+
+    public record Result(MappedMatrix matrix, double[] eigenValues, double[][] basis) {
+    }
+
+    /**
+     * public static methods
+     */
+
+    /**
+     * converts the text matrix to a binary file next to the output, whitens it and loads the N x R result
+     */
+    public static Matrix whitening(
+            String text, String folder, int R,
+            Map<String, Integer> namingMap,
+            Map<Integer, String> revNamingMap
+    ) throws IOException {
+        String name = Path.of(text).getFileName().toString();
+        try (MappedMatrix in = MappedMatrix.convert(text, folder + name + ".bin", true, namingMap, revNamingMap)) {
+            Result res = whitening(in, folder + name + ".whitened.bin", R);
+            try (MappedMatrix out = res.matrix()) {
+                return out.toMatrix();
+            }
+        }
+    }
+
+    public static Result whitening(MappedMatrix in, String out, int R) throws IOException {
+        int N = in.numRows();
+        int D = in.numCols();
+        int blockRows = in.blockRows();
+
+        // pass 1:
+        CovarianceAccumulator acc = new CovarianceAccumulator(D);
+        for (int from = 0; from < N; from += blockRows) {
+            int to = Math.min(N, from + blockRows);
+            acc.merge(CovarianceAccumulator.of(new Matrix(in.readRows(from, to))));
+        }
+        double[] mean = acc.mean();
+        double[] stDev = acc.variance();
+        for (int j = 0; j < D; j++) {
+            stDev[j] = Math.sqrt(stDev[j]);
+        }
+
+        // covariance of standardized rows is the correlation matrix:
+        double[][] raw = acc.covariance().dense().toArray();
+        double[][] corr = new double[D][D];
+        for (int j = 0; j < D; j++) {
+            for (int l = j; l < D; l++) {
+                corr[j][l] = raw[j][l] / (stDev[j] * stDev[l]);
+                corr[l][j] = corr[j][l];
+            }
+        }
+        Pair<double[], double[][]> basis = DataAnalysis.pcaBasis(new Matrix(corr), null, R);
+
+        // component k has zero mean and variance eigenValue_k, so the final standardization is a scale:
+        // out_k = sum_j (x_j - mean_j) / stDev_j * v_kj / sqrt(eigenValue_k)
+        double[][] weights = new double[R][D];
+        double[] shift = new double[R];
+        for (int k = 0; k < R; k++) {
+            double cff = 1 / Math.sqrt(basis.first[k]);
+            for (int j = 0; j < D; j++) {
+                weights[k][j] = basis.second[k][j] * cff / stDev[j];
+                shift[k] += mean[j] * weights[k][j];
+            }
+        }
+        DenseMatrix transform = DenseMatrix.of(weights).transpose();
+
+        // pass 2:
+        MappedMatrix res = MappedMatrix.create(out, N, R);
+        for (int from = 0; from < N; from += blockRows) {
+            int to = Math.min(N, from + blockRows);
+            DenseMatrix block = in.readRows(from, to).mult(transform);
+            for (int i = 0; i < to - from; i++) {
+                for (int k = 0; k < R; k++) {
+                    block.set(i, k, block.get(i, k) - shift[k]);
+                }
+            }
+            res.writeRows(from, block);
+        }
+
+        return new Result(res, basis.first, basis.second);
+    }
+}
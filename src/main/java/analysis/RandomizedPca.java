@@ -0,0 +1,148 @@
+package analysis;
+
+import utils.DenseMatrix;
+import utils.Matrix;
+import utils.Pair;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * static class
+ * <p>
+ * Top-R PCA by randomized block subspace iteration on the zero-mean data matrix X (N x D),
+ * the D x D covariance matrix is never formed: each step is X * Q and (X * Q)^T * X.
+ */
+public class RandomizedPca {
+
+    /**
+     * constants
+     */
+    private static final int OVERSAMPLING = 10;
+    private static final int MAX_ITERATIONS = 100;
+    private static final double TOLERANCE = 1e-12;
+    private static final long SEED = 42;
+
+    /**
+     * public static methods
+     */
+
+    /**
+     * @param matrix zero-mean data matrix, rows are samples
+     * @return top R eigen values and eigen vectors (R x D) of the covariance matrix, same as {@link DataAnalysis#pcaBasis}
+     */
+    public static Pair<double[], double[][]> basis(Matrix matrix, int R) {
+        return basis(matrix, R, SEED);
+    }
+
+    public static Pair<double[], double[][]> basis(Matrix matrix, int R, long seed) {
+        int N = matrix.numRows();
+        int D = matrix.numCols();
+        if (R > D) {
+            throw new RuntimeException("expected components number not greater than columns number");
+        }
+        int k = Math.min(D, R + OVERSAMPLING);
+
+        DenseMatrix X = matrix.dense().pack(true);
+
+        // block of k orthonormal vectors in rows, k x D:
+        double[] q = new double[k * D];
+        Random random = new Random(seed);
+        for (int i = 0; i < q.length; i++) {
+            q[i] = random.nextGaussian();
+        }
+        orthonormalizeRows(q, k, D);
+
+        double[] prev = new double[R];
+        Arrays.fill(prev, Double.NaN);
+
+        for (int it = 0; it < MAX_ITERATIONS; it++) {
+            // Y = X * Q, N x k
+            DenseMatrix Y = X.mult(DenseMatrix.wrap(q, k, D, true).transpose());
+
+            double[] ritz = ritzValues(Y, N, R);
+            boolean converged = true;
+            for (int i = 0; i < R; i++) {
+                if (!(Math.abs(ritz[i] - prev[i]) <= TOLERANCE * Math.max(1, Math.abs(ritz[0])))) {
+                    converged = false;
+                }
+            }
+            prev = ritz;
+            if (converged) {
+                break;
+            }
+
+            // Q = orth(Y^T * X), k x D
+            q = Y.transpose().mult(X).rowMajorData();
+            orthonormalizeRows(q, k, D);
+        }
+
+        // Rayleigh-Ritz on the final subspace:
+        DenseMatrix Y = X.mult(DenseMatrix.wrap(q, k, D, true).transpose());
+        Pair<double[], double[][]> small = projectedCovariance(Y, N).decomposition(null);
+
+        double[] eigenValues = Arrays.copyOf(small.first, R);
+        double[][] eigenVectors = new double[R][D];
+        for (int i = 0; i < R; i++) {
+            for (int j = 0; j < k; j++) {
+                double w = small.second[i][j];
+                int base = j * D;
+                for (int l = 0; l < D; l++) {
+                    eigenVectors[i][l] += w * q[base + l];
+                }
+            }
+        }
+
+        return new Pair<>(eigenValues, eigenVectors);
+    }
+
+    // private methods:
+
+    /**
+     * @return Q^T C Q = Y^T Y / N, k x k, exactly symmetric
+     */
+    private static Matrix projectedCovariance(DenseMatrix Y, int N) {
+        int k = Y.numCols();
+        double[] y = Y.transpose().pack(true).rowMajorData();
+        double[][] res = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int j = i; j < k; j++) {
+                res[i][j] = DenseMatrix.dot(y, i * N, y, j * N, 0, N) / N;
+                res[j][i] = res[i][j];
+            }
+        }
+        return new Matrix(res);
+    }
+
+    private static double[] ritzValues(DenseMatrix Y, int N, int R) {
+        return Arrays.copyOf(projectedCovariance(Y, N).decomposition(null).first, R);
+    }
+
+    /**
+     * modified Gram-Schmidt with re-orthogonalization, a row that collapses is replaced by a unit vector
+     */
+    private static void orthonormalizeRows(double[] q, int k, int D) {
+        for (int i = 0; i < k; i++) {
+            int base = i * D;
+            for (int attempt = 0; ; attempt++) {
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int j = 0; j < i; j++) {
+                        double proj = DenseMatrix.dot(q, base, q, j * D, 0, D);
+                        for (int l = 0; l < D; l++) {
+                            q[base + l] -= proj * q[j * D + l];
+                        }
+                    }
+                }
+                double norm = Math.sqrt(DenseMatrix.dot(q, base, q, base, 0, D));
+                if (norm > TOLERANCE || attempt == D) {
+                    for (int l = 0; l < D; l++) {
+                        q[base + l] /= norm;
+                    }
+                    break;
+                }
+                Arrays.fill(q, base, base + D, 0);
+                q[base + (i + attempt) % D] = 1;
+            }
+        }
+    }
+}
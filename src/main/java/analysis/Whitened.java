@@ -0,0 +1,18 @@
+package analysis;
+
+import utils.Matrix;
+
+/**
+ * result of whitening
+ *
+ * @param matrix      whitened N * R matrix
+ * @param eigenValues top R eigen values of the covariance matrix of standardized data
+ * @param basis       R * D PCA basis, rows are eigen vectors
+ */
+public record Whitened(
+        Matrix matrix,
+        double[] eigenValues,
+        double[][] basis
+) {
+    // nothing
+}
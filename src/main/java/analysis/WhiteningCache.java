@@ -0,0 +1,141 @@
+package analysis;
+
+import utils.DenseMatrix;
+import utils.Matrix;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Disk cache of whitening results, keyed by SHA-256 of the input matrix, the number of PCA components
+ * and the PCA path (exact or randomized, see {@link DataAnalysis#RANDOMIZED_PCA_MIN_COLS}).
+ * VERSION must be bumped whenever the whitening algorithm changes.
+ */
+public class WhiteningCache {
+    private static final String DEFAULT_FOLDER = "./cache/";
+    /**
+     * 2: randomized PCA for wide matrices
+     */
+    private static final int VERSION = 2;
+
+    private final Path folder;
+
+    public WhiteningCache() {
+        this(DEFAULT_FOLDER);
+    }
+
+    public WhiteningCache(String folder) {
+        this.folder = Path.of(folder);
+    }
+
+    public Matrix whitening(Matrix matrix) {
+        return whitening(matrix, DataAnalysis.PCA_COMPONENTS_NUM).matrix();
+    }
+
+    public Whitened whitening(Matrix matrix, int R) {
+        try {
+            Path file = folder.resolve(key(matrix, R) + ".whitened");
+            if (Files.exists(file)) {
+                return read(file);
+            }
+            Whitened ans = DataAnalysis.whitening(matrix, R, null);
+            write(file, ans);
+            return ans;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // private methods:
+
+    private static String key(Matrix matrix, int R) {
+        MessageDigest digest = sha256();
+        boolean randomized = matrix.numCols() >= DataAnalysis.RANDOMIZED_PCA_MIN_COLS;
+        ByteBuffer header = ByteBuffer.allocate(17);
+        header.putInt(VERSION).putInt(matrix.numRows()).putInt(matrix.numCols()).putInt(R).put((byte) (randomized ? 1 : 0));
+        digest.update(header.array());
+        update(digest, matrix);
+        return hex(digest);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static void update(MessageDigest digest, Matrix matrix) {
+        double[] data = matrix.dense().rowMajorData();
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 4096);
+        for (int i = 0; i < data.length; i++) {
+            buffer.putDouble(data[i]);
+            if (!buffer.hasRemaining() || i == data.length - 1) {
+                digest.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+    }
+
+    static String hex(MessageDigest digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private void write(Path file, Whitened whitened) throws IOException {
+        Files.createDirectories(folder);
+        Path tmp = Files.createTempFile(folder, "whitened", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            Matrix matrix = whitened.matrix();
+            out.writeInt(matrix.numRows());
+            out.writeInt(matrix.numCols());
+            for (double val : matrix.dense().rowMajorData()) {
+                out.writeDouble(val);
+            }
+            out.writeInt(whitened.basis().length);
+            out.writeInt(whitened.basis().length == 0 ? 0 : whitened.basis()[0].length);
+            for (double val : whitened.eigenValues()) {
+                out.writeDouble(val);
+            }
+            for (double[] row : whitened.basis()) {
+                for (double val : row) {
+                    out.writeDouble(val);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Whitened read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int N = in.readInt();
+            int R = in.readInt();
+            double[] data = new double[N * R];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = in.readDouble();
+            }
+            int basisRows = in.readInt();
+            int D = in.readInt();
+            double[] eigenValues = new double[basisRows];
+            for (int i = 0; i < basisRows; i++) {
+                eigenValues[i] = in.readDouble();
+            }
+            double[][] basis = new double[basisRows][D];
+            for (int i = 0; i < basisRows; i++) {
+                for (int j = 0; j < D; j++) {
+                    basis[i][j] = in.readDouble();
+                }
+            }
+            return new Whitened(new Matrix(DenseMatrix.wrap(data, N, R, true)), eigenValues, basis);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package analysis;
+
+import io.ResultsStore.Record;
+
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * static class
+ * <p>
+ * Two-sided Wilcoxon signed-rank test of paired samples as scipy.stats.wilcoxon with zero_method = "wilcox":
+ * zero differences are dropped, tied absolute differences get average ranks. The p-value is exact
+ * (distribution of the rank sum over all 2^n sign vectors, ties included) up to {@link #EXACT_MAX_N} pairs,
+ * otherwise it is estimated by random sign flips in parallel.
+ */
+public class Wilcoxon {
+
+    /**
+     * constants
+     */
+    public static final int EXACT_MAX_N = 200;
+    private static final int PERMUTATIONS = 100_000;
+    private static final int CHUNK = 1024;
+    private static final long SEED = 42;
+
+    /**
+     * @param statistic min(W+, W-), as reported by scipy
+     * @param n         count of non-zero differences
+     */
+    public record Result(double statistic, double pValue, int n, boolean exact) {
+        // nothing
+    }
+
+    /**
+     * public static methods
+     */
+
+    public static Result test(double[] x, double[] y) {
+        double[] ranks = doubledRanks(x, y);
+        return (ranks.length <= EXACT_MAX_N) ? exact(ranks) : permutation(ranks, PERMUTATIONS, SEED);
+    }
+
+    public static Result exact(double[] x, double[] y) {
+        return exact(doubledRanks(x, y));
+    }
+
+    public static Result permutation(double[] x, double[] y, int permutations, long seed) {
+        return permutation(doubledRanks(x, y), permutations, seed);
+    }
+
+    /**
+     * compares two values of the same records, for example AUC of the found module against the best FastICA AUC
+     */
+    public static Result compareValues(
+            List<Record> records,
+            Predicate<Record> filter,
+            ToDoubleFunction<Record> first,
+            ToDoubleFunction<Record> second
+    ) {
+        List<Record> selected = records.stream().filter(filter).toList();
+        return test(
+                selected.stream().mapToDouble(first).toArray(),
+                selected.stream().mapToDouble(second).toArray()
+        );
+    }
+
+    /**
+     * compares one value of two record kinds paired by title, module and base,
+     * for example F1 of the best NetClust cluster against F1 of the found module;
+     * of repeated first records of one key the last one is paired
+     */
+    public static Result comparePaired(
+            List<Record> records,
+            Predicate<Record> first,
+            Predicate<Record> second,
+            ToDoubleFunction<Record> value
+    ) {
+        Map<List<Object>, Record> firstByKey = new HashMap<>();
+        for (Record record : records) {
+            if (first.test(record)) {
+                firstByKey.put(key(record), record);
+            }
+        }
+        List<Double> x = new ArrayList<>();
+        List<Double> y = new ArrayList<>();
+        for (Record record : records) {
+            if (second.test(record) && firstByKey.containsKey(key(record))) {
+                x.add(value.applyAsDouble(firstByKey.get(key(record))));
+                y.add(value.applyAsDouble(record));
+            }
+        }
+        return test(
+                x.stream().mapToDouble(Double::doubleValue).toArray(),
+                y.stream().mapToDouble(Double::doubleValue).toArray()
+        );
+    }
+
+    /**
+     * @return records of the session in file order
+     */
+    public static List<Record> ofSession(List<Record> records, String session) {
+        return records.stream().filter(r -> r.session().equals(session)).toList();
+    }
+
+    /**
+     * @return the last record of every title, dataset, module, method, base and component in file order,
+     * so a title evaluated again replaces its earlier records
+     */
+    public static List<Record> latest(List<Record> records) {
+        Map<List<Object>, Record> last = new LinkedHashMap<>();
+        for (Record r : records) {
+            List<Object> key = List.of(r.title(), r.dataset(), r.module(), r.method(), r.base(), r.component());
+            last.remove(key);
+            last.put(key, r);
+        }
+        return new ArrayList<>(last.values());
+    }
+
+    /**
+     * @return records of the modulesCount modules with the best found F1 of every run title
+     */
+    public static List<Record> bestModules(List<Record> records, int modulesCount) {
+        Map<String, Map<Integer, Double>> best = new HashMap<>();
+        for (Record record : records) {
+            if (isFound(record)) {
+                best.computeIfAbsent(record.title(), k -> new HashMap<>())
+                        .merge(record.module(), record.f1score(), Math::max);
+            }
+        }
+        Set<List<Object>> selected = new HashSet<>();
+        best.forEach((title, modules) -> modules.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .limit(modulesCount)
+                .forEach(e -> selected.add(List.of(title, e.getKey()))));
+        return records.stream().filter(r -> selected.contains(List.of(r.title(), r.module()))).toList();
+    }
+
+    /**
+     * the comparisons of fast_ica/main.py over the modulesCount best modules of every run:
+     * F1 of the best NetClust cluster against the found module for every base and in total,
+     * AUC ROC of the best FastICA component against the found module;
+     * repeated evaluations count once, see {@link #latest}
+     */
+    public static void report(List<Record> records, int modulesCount, PrintWriter out) {
+        List<Record> best = bestModules(latest(records), modulesCount);
+        Predicate<Record> netClust = r -> r.method().equals("nc");
+
+        Set<String> bases = new TreeSet<>();
+        best.stream().filter(netClust).forEach(r -> bases.add(r.base()));
+        for (String base : bases) {
+            Result res = comparePaired(best, r -> netClust.test(r) && r.base().equals(base), r -> isFound(r) && r.base().equals(base), Record::f1score);
+            out.println("f1score " + base + ": " + res);
+        }
+        out.println("f1score total: " + comparePaired(best, netClust, Wilcoxon::isFound, Record::f1score));
+
+        Set<List<Object>> seen = new HashSet<>();
+        Predicate<Record> onePerModule = r -> isFound(r) && seen.add(List.of(r.title(), r.module()));
+        out.println("auc_roc: " + compareValues(best, onePerModule, Record::icaAucRoc, Record::aucRoc));
+    }
+
+    // private methods:
+
+    private static boolean isFound(Record record) {
+        return record.method().equals("x") || record.method().equals("y");
+    }
+
+    private static List<Object> key(Record record) {
+        return List.of(record.title(), record.module(), record.base());
+    }
+
+    /**
+     * @return 2 * rank of every non-zero |x - y| with sign of the difference, ties get the average rank
+     */
+    private static double[] doubledRanks(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new RuntimeException("expected paired samples of equal size");
+        }
+        double[] d = IntStream.range(0, x.length)
+                .mapToDouble(i -> x[i] - y[i])
+                .filter(v -> v != 0 && !Double.isNaN(v))
+                .toArray();
+        int n = d.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> Math.abs(d[i])));
+
+        double[] res = new double[n];
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j + 1 < n && Math.abs(d[order[j + 1]]) == Math.abs(d[order[i]])) j++;
+            // average of ranks i + 1 .. j + 1, doubled:
+            int doubled = i + j + 2;
+            for (int k = i; k <= j; k++) {
+                res[order[k]] = Math.signum(d[order[k]]) * doubled;
+            }
+            i = j + 1;
+        }
+        return res;
+    }
+
+    private static Result exact(double[] ranks) {
+        int n = ranks.length;
+        if (n == 0) {
+            return new Result(0, 1, 0, true);
+        }
+        int total = 0;
+        int positive = 0;
+        for (double r : ranks) {
+            total += (int) Math.abs(r);
+            if (r > 0) positive += (int) r;
+        }
+
+        // probability of every doubled sum of positive ranks under random signs:
+        double[] prob = new double[total + 1];
+        prob[0] = 1;
+        int reached = 0;
+        for (double r : ranks) {
+            int rank = (int) Math.abs(r);
+            reached += rank;
+            for (int s = reached; s >= 0; s--) {
+                prob[s] = 0.5 * (prob[s] + ((s >= rank) ? prob[s - rank] : 0));
+            }
+        }
+
+        double lower = 0;
+        double upper = 0;
+        for (int s = 0; s <= total; s++) {
+            if (s <= positive) lower += prob[s];
+            if (s >= positive) upper += prob[s];
+        }
+        double pValue = Math.min(1, 2 * Math.min(lower, upper));
+        return new Result(Math.min(positive, total - positive) / 2.0, pValue, n, true);
+    }
+
+    /**
+     * p = (1 + count of sign vectors at least as far from the mean as the observed one) / (1 + permutations)
+     */
+    private static Result permutation(double[] ranks, int permutations, long seed) {
+        int n = ranks.length;
+        if (n == 0) {
+            return new Result(0, 1, 0, false);
+        }
+        long[] abs = Arrays.stream(ranks).mapToLong(r -> (long) Math.abs(r)).toArray();
+        long total = Arrays.stream(abs).sum();
+        long positive = Arrays.stream(ranks).filter(r -> r > 0).mapToLong(r -> (long) r).sum();
+        long observed = Math.abs(2 * positive - total);
+
+        int chunks = (permutations + CHUNK - 1) / CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] random = new SplittableRandom[chunks];
+        for (int k = 0; k < chunks; k++) {
+            random[k] = root.split();
+        }
+
+        long extreme = IntStream.range(0, chunks).parallel().mapToLong(k -> {
+            long count = 0;
+            for (int p = k * CHUNK; p < Math.min(permutations, (k + 1) * CHUNK); p++) {
+                long sum = 0;
+                long bits = 0;
+                for (int i = 0; i < n; i++) {
+                    if ((i & 63) == 0) bits = random[k].nextLong();
+                    if ((bits & 1) != 0) sum += abs[i];
+                    bits >>>= 1;
+                }
+                if (Math.abs(2 * sum - total) >= observed) count++;
+            }
+            return count;
+        }).sum();
+
+        double pValue = (extreme + 1.0) / (permutations + 1.0);
+        return new Result(Math.min(positive, total - positive) / 2.0, pValue, n, false);
+    }
+}
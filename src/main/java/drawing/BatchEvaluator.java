@@ -0,0 +1,81 @@
+package drawing;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates many score vectors against one label vector: labels are indexed once into positive and
+ * negative positions, every score vector is then sorted in parallel into {@link RankedScores}.
+ */
+public class BatchEvaluator {
+    private final int[] positives;
+    private final int[] negatives;
+
+    public BatchEvaluator(boolean[] labels) {
+        int h = 0;
+        for (boolean label : labels) {
+            if (label) h++;
+        }
+        this.positives = new int[h];
+        this.negatives = new int[labels.length - h];
+        int hi = 0;
+        int wi = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i]) {
+                positives[hi++] = i;
+            } else {
+                negatives[wi++] = i;
+            }
+        }
+    }
+
+    public BatchEvaluator(Boolean[] labels) {
+        this(unbox(labels));
+    }
+
+    public int size() {
+        return positives.length + negatives.length;
+    }
+
+    public RankedScores rank(double[] scores) {
+        if (scores.length != size()) {
+            throw new RuntimeException("expected scores for every label");
+        }
+        return new RankedScores(scores, positives, negatives);
+    }
+
+    public RankedScores rank(Double[] scores) {
+        return rank(unbox(scores));
+    }
+
+    /**
+     * @return ranked vectors in the order of scores, computed in parallel
+     */
+    public List<RankedScores> rankAll(List<double[]> scores) {
+        RankedScores[] res = new RankedScores[scores.size()];
+        IntStream.range(0, res.length).parallel().forEach(i -> res[i] = rank(scores.get(i)));
+        return List.of(res);
+    }
+
+    public static double[] unbox(Double[] values) {
+        double[] res = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new RuntimeException("invalid data #2 in Roc.draw method");
+            }
+            res[i] = values[i];
+        }
+        return res;
+    }
+
+    private static boolean[] unbox(Boolean[] values) {
+        boolean[] res = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new RuntimeException("invalid data #2 in Roc.draw method");
+            }
+            res[i] = values[i];
+        }
+        return res;
+    }
+}
@@ -0,0 +1,260 @@
+package drawing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Percentile bootstrap confidence intervals of AUC ROC and F1 for score vectors ranked against one label vector.
+ * Every replicate resamples genes with replacement once for all vectors (paired replicates), as integer weights
+ * per gene. The weights are summed over the groups of equal scores of the existing {@link RankedScores} order,
+ * so no replicate is sorted again. Replicates are split into fixed chunks with own {@link SplittableRandom}
+ * and buffers, results do not depend on the number of threads.
+ */
+public class Bootstrap {
+    private static final int CHUNK = 16;
+
+    public record Interval(
+            double estimate,
+            double lower,
+            double upper
+    ) {
+        // nothing
+    }
+
+    /**
+     * @param f1score intervals at the requested thresholds, in the same order
+     */
+    public record CurveIntervals(
+            Interval auc,
+            List<Interval> f1score
+    ) {
+        // nothing
+    }
+
+    private final int replicates;
+    private final double level;
+    private final long seed;
+
+    /**
+     * @param level confidence level, for example 0.95
+     */
+    public Bootstrap(int replicates, double level, long seed) {
+        if (replicates <= 0 || level <= 0 || level >= 1) {
+            throw new RuntimeException("unexpected bootstrap parameters");
+        }
+        this.replicates = replicates;
+        this.level = level;
+        this.seed = seed;
+    }
+
+    /**
+     * @param curves     score vectors ranked against labels
+     * @param thresholds F1 thresholds of every curve, predictions >= threshold as in {@link RankedScores#metrics}
+     */
+    public List<CurveIntervals> intervals(boolean[] labels, List<RankedScores> curves, List<double[]> thresholds) {
+        if (curves.size() != thresholds.size()) {
+            throw new RuntimeException("expected thresholds for every curve");
+        }
+        int n = labels.length;
+        int C = curves.size();
+
+        Groups[] groups = new Groups[C];
+        IntStream.range(0, C).parallel().forEach(c -> groups[c] = new Groups(curves.get(c), labels, thresholds.get(c)));
+
+        double[][] auc = new double[C][replicates];
+        double[][][] f1score = new double[C][][];
+        for (int c = 0; c < C; c++) {
+            f1score[c] = new double[thresholds.get(c).length][replicates];
+        }
+
+        // one generator per chunk, split in a fixed order:
+        int chunks = (replicates + CHUNK - 1) / CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] random = new SplittableRandom[chunks];
+        for (int k = 0; k < chunks; k++) {
+            random[k] = root.split();
+        }
+
+        IntStream.range(0, chunks).parallel().forEach(k -> {
+            int[] weights = new int[n];
+            long[][] positive = new long[C][];
+            long[][] negative = new long[C][];
+            for (int c = 0; c < C; c++) {
+                positive[c] = new long[groups[c].count + 1];
+                negative[c] = new long[groups[c].count + 1];
+            }
+
+            for (int r = k * CHUNK; r < Math.min(replicates, (k + 1) * CHUNK); r++) {
+                Arrays.fill(weights, 0);
+                for (int j = 0; j < n; j++) {
+                    weights[random[k].nextInt(n)]++;
+                }
+                for (int c = 0; c < C; c++) {
+                    groups[c].count(weights, positive[c], negative[c]);
+                    auc[c][r] = groups[c].auc(positive[c], negative[c]);
+                    for (int i = 0; i < f1score[c].length; i++) {
+                        f1score[c][i][r] = groups[c].f1score(positive[c], negative[c], i);
+                    }
+                }
+            }
+        });
+
+        CurveIntervals[] res = new CurveIntervals[C];
+        IntStream.range(0, C).parallel().forEach(c -> {
+            RankedScores curve = curves.get(c);
+            double[] th = thresholds.get(c);
+            Interval[] f1 = new Interval[th.length];
+            for (int i = 0; i < th.length; i++) {
+                f1[i] = interval(curve.metrics(th[i])[2], f1score[c][i]);
+            }
+            res[c] = new CurveIntervals(interval(curve.auc(), auc[c]), List.of(f1));
+        });
+        return List.of(res);
+    }
+
+    // private methods:
+
+    /**
+     * percentile interval over replicates, replicates without both classes are skipped
+     */
+    private Interval interval(double estimate, double[] values) {
+        double[] sorted = Arrays.stream(values).filter(v -> !Double.isNaN(v)).sorted().toArray();
+        if (sorted.length == 0) {
+            return new Interval(estimate, Double.NaN, Double.NaN);
+        }
+        double alpha = (1 - level) / 2;
+        return new Interval(estimate, quantile(sorted, alpha), quantile(sorted, 1 - alpha));
+    }
+
+    private static double quantile(double[] sorted, double q) {
+        double pos = q * (sorted.length - 1);
+        int lo = (int) Math.floor(pos);
+        int hi = Math.min(sorted.length - 1, lo + 1);
+        return sorted[lo] + (pos - lo) * (sorted[hi] - sorted[lo]);
+    }
+
+    /**
+     * gene -> group of equal scores of one curve, groups are numbered in descending score order,
+     * NaN scores get the last group
+     */
+    private static class Groups {
+        private final int count;
+        private final int[] groupOf;
+        private final boolean[] labels;
+        /**
+         * number of groups predicted at every threshold
+         */
+        private final int[] cuts;
+
+        Groups(RankedScores curve, boolean[] labels, double[] thresholds) {
+            double[] values = curve.values();
+            int nanCount = curve.nanCount();
+
+            double[] distinct = new double[values.length - nanCount];
+            int count = 0;
+            for (int i = nanCount; i < values.length; i++) {
+                if (count == 0 || values[i] != distinct[count - 1]) {
+                    distinct[count++] = values[i];
+                }
+            }
+            this.count = count;
+            this.labels = labels;
+
+            double[] scores = curve.scores();
+            this.groupOf = new int[scores.length];
+            for (int i = 0; i < scores.length; i++) {
+                groupOf[i] = Double.isNaN(scores[i]) ? count : find(distinct, count, scores[i]);
+            }
+
+            this.cuts = new int[thresholds.length];
+            for (int i = 0; i < thresholds.length; i++) {
+                int cut = 0;
+                if (!Double.isNaN(thresholds[i])) {
+                    while (cut < count && distinct[cut] >= thresholds[i]) cut++;
+                }
+                cuts[i] = cut;
+            }
+        }
+
+        /**
+         * weighted counts of positive and negative genes in every group
+         */
+        void count(int[] weights, long[] positive, long[] negative) {
+            Arrays.fill(positive, 0);
+            Arrays.fill(negative, 0);
+            for (int i = 0; i < weights.length; i++) {
+                int w = weights[i];
+                if (w == 0) continue;
+                if (labels[i]) {
+                    positive[groupOf[i]] += w;
+                } else {
+                    negative[groupOf[i]] += w;
+                }
+            }
+        }
+
+        /**
+         * {@link RankedScores#auc} with weights, NaN if a class is missing in the replicate
+         */
+        double auc(long[] positive, long[] negative) {
+            long h = 0;
+            long w = 0;
+            for (int g = 0; g <= count; g++) {
+                h += positive[g];
+                w += negative[g];
+            }
+            if (h == 0 || w == 0) {
+                return Double.NaN;
+            }
+            long positiveNan = positive[count];
+            long negativeNan = negative[count];
+
+            double numerator2 = (double) positiveNan * w;
+            long lower = 0;
+            for (int g = count - 1; g >= 0; g--) {
+                numerator2 += (double) positive[g] * (2 * lower + negative[g] + negativeNan);
+                lower += negative[g];
+            }
+            return (numerator2 / 2.0) / ((double) h * w);
+        }
+
+        /**
+         * {@link RankedScores#metrics} F1 with weights
+         */
+        double f1score(long[] positive, long[] negative, int threshold) {
+            double TP = 0, FP = 0, positives = 0;
+            for (int g = 0; g < count; g++) {
+                if (g < cuts[threshold]) {
+                    TP += positive[g];
+                    FP += negative[g];
+                }
+                positives += positive[g];
+            }
+            double FN = positives - TP;
+            double precision = 0, recall = 0;
+            if (TP + FP != 0) {
+                precision = TP / (TP + FP);
+            }
+            if (TP + FN != 0) {
+                recall = TP / (TP + FN);
+            }
+            return (precision + recall != 0) ? 2 * precision * recall / (precision + recall) : 0;
+        }
+
+        private static int find(double[] descending, int count, double value) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (descending[mid] > value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
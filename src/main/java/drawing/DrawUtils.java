@@ -1,13 +1,16 @@
 package drawing;
 
 import graph.Graph;
+import io.ResultsStore;
+import io.ResultsStore.Record;
 import utils.Pair;
 
-import java.io.*;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * static class
@@ -15,241 +18,303 @@ import java.util.*;
 public class DrawUtils {
     private static final double EPS = 1e-6;
     public static final int ANS_FILES_COUNT = 3;
+    public static final String RESULTS = "./aggregate/results.tsv";
+    private static final Bootstrap BOOTSTRAP = new Bootstrap(1000, 0.95, 0);
+    private static final double FALSE_POSITIVE_RATE = 0.03;
 
-    public static void newDraw(String folder, String title, Graph graph) {
-        try (PrintWriter agg1 = new PrintWriter(new FileOutputStream("./aggregate/agg1.txt", true))) {
-            try (PrintWriter agg2 = new PrintWriter(new FileOutputStream("./aggregate/agg2.txt", true))) {
-                agg1.println("--------------------");
-                agg2.println("--------------------");
-
-                Double[] clust_size = readAsDoubleArray(folder + "0_clust_size.txt");
-                Double[] module_size = readAsDoubleArray(folder + "0_module_size.txt");
-                Double[] fast_ica_size = readAsDoubleArray(folder + "0_fast_ica_size.txt");
-
-                Double[] q = readAsDoubleArray(folder + "q.txt");
-                Double[] x = readAsDoubleArray(folder + "x.txt");
-                Double[] t = readAsDoubleArray(folder + "t.txt");
-                Double[] y = readAsDoubleArray(folder + "y.txt");
-
-                List<Double[]> fast_ica = new ArrayList<>();
-                for (int i = 0; i < fast_ica_size[0]; i++) {
-                    Double[] ica = readAsDoubleArray(folder + "ica_ans_" + i + ".txt");
-                    Double[] ica_f = new Double[ica.length];
-                    Double[] ica_g = new Double[ica.length];
-                    for (int j = 0; j < ica.length; j++) {
-                        if (ica[j] >= 0) {
-                            ica_f[j] = Math.abs(ica[j]);
-                            ica_g[j] = 0.0;
-                        } else {
-                            ica_f[j] = 0.0;
-                            ica_g[j] = Math.abs(ica[j]);
-                        }
-                    }
-                    fast_ica.add(ica_f);
-                    fast_ica.add(ica_g);
+    /**
+     * @param charts futures of the charts, see {@link ROC#draw}
+     */
+    public record Evaluation(List<Record> records, List<Future<?>> charts) {
+        // nothing
+    }
+
+    /**
+     * reads the input from the ./answers file layout, see {@link EvaluationInput#write}
+     */
+    public static Evaluation newDraw(String folder, String title, Graph graph) {
+        try {
+            return newDraw(EvaluationInput.read(folder), title, graph);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static Evaluation newDraw(EvaluationInput input, String title, Graph graph) {
+        return newDraw(input, title, title, -1, graph, ResultsStore.open(RESULTS));
+    }
+
+    /**
+     * evaluates the solution and the baselines against every true module, appends the results to store
+     * and draws one ROC chart per module
+     *
+     * @param timeMs solving time of the run, -1 if unknown
+     * @return the appended records and the futures of the charts of this call
+     */
+    public static Evaluation newDraw(
+            EvaluationInput input,
+            String dataset,
+            String title,
+            long timeMs,
+            Graph graph,
+            ResultsStore store
+    ) {
+        int[] clust_size = input.clusterSizes();
+        if (clust_size.length != ANS_FILES_COUNT) {
+            throw new RuntimeException("expected clusters for every base");
+        }
+
+        List<double[]> fast_ica = new ArrayList<>();
+        for (double[] ica : input.fastIca()) {
+            double[] ica_f = new double[ica.length];
+            double[] ica_g = new double[ica.length];
+            for (int j = 0; j < ica.length; j++) {
+                if (ica[j] >= 0) {
+                    ica_f[j] = Math.abs(ica[j]);
+                    ica_g[j] = 0.0;
+                } else {
+                    ica_f[j] = 0.0;
+                    ica_g[j] = Math.abs(ica[j]);
                 }
+            }
+            fast_ica.add(ica_f);
+            fast_ica.add(ica_g);
+        }
+
+        List<double[]> clusters = input.clusters();
+
+        // every score vector of a module is ranked once against its labels:
+        List<double[]> scores = new ArrayList<>(clusters);
+        scores.add(input.q());
+        scores.add(input.t());
+        scores.addAll(fast_ica);
+
+        List<Future<?>> charts = new ArrayList<>();
+        List<Record> records = new ArrayList<>();
+        Consumer<Record> sink = record -> {
+            store.append(record);
+            records.add(record);
+        };
+        for (int modNum = 0; modNum < input.modules().length; modNum++) {
+            boolean[] p = input.modules()[modNum];
+            List<RankedScores> ranked = new BatchEvaluator(p).rankAll(scores);
+            RankedScores ranked_q = ranked.get(clusters.size());
+            RankedScores ranked_t = ranked.get(clusters.size() + 1);
+
+            Map<String, ROC.ROCLine> myLine = new TreeMap<>();
+            Map<String, ROC.ROCLine> bestNetClustLine = new TreeMap<>();
+            Map<String, ROC.ROCLine> otherNetClustLine = new TreeMap<>();
+
+            int clusters_ind = 0;
+            List<Double> best_f1score_clust = new ArrayList<>();
+            List<Integer> best_tpfp_clust = new ArrayList<>();
+            List<Pair<String, ROC.ROCLine>> best_lines_clust = new ArrayList<>();
+            List<Integer> best_index_clust = new ArrayList<>();
+            List<Record> records_clust = new ArrayList<>();
 
-                List<Double[]> clusters = new ArrayList<>();
-                for (int base_cnt = 0; base_cnt < ANS_FILES_COUNT; base_cnt++) {
-                    for (int clustNum = 0; clustNum < clust_size[base_cnt]; clustNum++) {
-                        Double[] n = readAsDoubleArray(folder + (base_cnt + 1) + "_nc_ans_" + clustNum + ".txt");
-                        clusters.add(n);
+            for (int base_cnt = 0; base_cnt < ANS_FILES_COUNT; base_cnt++) {
+                String base = baseName(base_cnt);
+
+                best_f1score_clust.add(-1.0);
+                best_tpfp_clust.add(-1);
+                best_lines_clust.add(null);
+                best_index_clust.add(-1);
+
+                for (int clustNum = 0; clustNum < clust_size[base_cnt]; clustNum++) {
+                    RankedScores n = ranked.get(clusters_ind++);
+                    ROC.ROCLine line = n.line(null);
+                    double[] metrics = n.metrics(1 - EPS);
+                    Record record = record(dataset, title, modNum, "nc_cluster", base, clustNum, metrics, line.auc_roc(), Double.NaN, timeMs);
+                    if (metrics[2] > best_f1score_clust.get(base_cnt)) {
+                        double val = BigDecimal.valueOf(metrics[2]).setScale(4, RoundingMode.HALF_DOWN).doubleValue();
+                        best_f1score_clust.set(base_cnt, val);
+                        best_tpfp_clust.set(base_cnt, (int) Math.round(metrics[3]));
+                        best_lines_clust.set(base_cnt, new Pair<>("NC_" + base + "_" + clustNum, line));
+                        best_index_clust.set(base_cnt, records_clust.size());
                     }
+                    records_clust.add(record);
+                    otherNetClustLine.put("NC_" + base + "_" + clustNum, line);
                 }
+            }
 
-                List<Pair<Double, Integer>> theBest = new ArrayList<>();
-
-                Map<Integer, List<String>> results = new HashMap<>();
-                for (int modNum = 0; modNum < module_size[0]; modNum++) {
-                    Boolean[] p = readAsBooleanArray(folder + "p_ans_" + modNum + ".txt");
-
-                    results.put(modNum, new ArrayList<>());
-
-                    //Map<String, ROC.ROCLine> lines = new TreeMap<>();
-                    Map<String, ROC.ROCLine> myLine = new TreeMap<>();
-                    Map<String, ROC.ROCLine> bestNetClustLine = new TreeMap<>();
-                    Map<String, ROC.ROCLine> otherNetClustLine = new TreeMap<>();
-
-                    int clusters_ind = 0;
-                    List<Double> best_f1score_clust = new ArrayList<>();
-                    List<Integer> best_tpfp_clust = new ArrayList<>();
-                    List<Pair<String, ROC.ROCLine>> best_lines_clust = new ArrayList<>();
-
-                    for (int base_cnt = 0; base_cnt < ANS_FILES_COUNT; base_cnt++) {
-                        String base;
-                        if (base_cnt == 0) {
-                            base = "0.25";
-                        } else if (base_cnt == 1) {
-                            base = "0.4";
-                        } else if (base_cnt == 2) {
-                            base = "0.5";
-                        } else {
-                            throw new RuntimeException("unexpected");
-                        }
-
-                        best_f1score_clust.add(-1.0);
-                        best_tpfp_clust.add(-1);
-                        best_lines_clust.add(null);
-
-                        for (int clustNum = 0; clustNum < clust_size[base_cnt]; clustNum++) {
-                            Double[] n = clusters.get(clusters_ind++);
-                            ROC.ROCLine line = ROC.getLine(n, p, null);
-                            double[] metrics = calcMetrics(n, p, 1 - EPS);
-                            if (metrics[2] > best_f1score_clust.get(base_cnt)) {
-                                double val = BigDecimal.valueOf(metrics[2]).setScale(4, RoundingMode.HALF_DOWN).doubleValue();
-                                best_f1score_clust.set(base_cnt, val);
-                                best_tpfp_clust.set(base_cnt, (int) Math.round(metrics[3]));
-                                best_lines_clust.set(base_cnt, new Pair<>("NC_" + base + "_" + clustNum, line));
-                            }
-                            agg1.println(title + "_module_" + modNum + "_nc_" + clustNum + "_" + base + ", metrics = " + Arrays.toString(metrics));
-                            otherNetClustLine.put("NC_" + base + "_" + clustNum, line);
-                        }
-                    }
+            ROC.ROCLine line_x = ranked_q.line(null);
+            ROC.ROCLine line_y = ranked_t.line(null);
 
-                    ROC.ROCLine line_x = ROC.getLine(q, p, best_tpfp_clust);
-                    ROC.ROCLine line_y = ROC.getLine(t, p, best_tpfp_clust);
+            myLine.put("POSITIVE", line_x);
+            myLine.put("NEGATIVE", line_y);
 
-                    myLine.put("POSITIVE", line_x);
-                    myLine.put("NEGATIVE", line_y);
+            // reported operating points of both sides: the size of the best NetClust cluster of every base,
+            // then the FALSE_POSITIVE_RATE point
+            List<ThresholdSweep.OperatingPoint> points_x = operatingPoints(ranked_q.sweep(), best_tpfp_clust);
+            List<ThresholdSweep.OperatingPoint> points_y = operatingPoints(ranked_t.sweep(), best_tpfp_clust);
 
-                    double max_ica_auc_roc = 0;
-                    for (int i = 0; i < fast_ica.size(); i++) {
-                        ROC.ROCLine ica_line = ROC.getLine(fast_ica.get(i), p, null);
-                        myLine.put("ICA" + i, ica_line);
-                        if (max_ica_auc_roc < ica_line.auc_roc()) {
-                            max_ica_auc_roc = ica_line.auc_roc();
-                        }
-                    }
-                    max_ica_auc_roc = BigDecimal.valueOf(max_ica_auc_roc).setScale(4, RoundingMode.HALF_UP).doubleValue();
-
-                    for (int base_cnt = 0; base_cnt < ANS_FILES_COUNT; base_cnt++) {
-                        String base;
-                        if (base_cnt == 0) {
-                            base = "0.25";
-                        } else if (base_cnt == 1) {
-                            base = "0.4";
-                        } else if (base_cnt == 2) {
-                            base = "0.5";
-                        } else {
-                            throw new RuntimeException("unexpected");
-                        }
-
-                        String str_nc = title + "_module_" + modNum + "_nc_" + base + "," + best_f1score_clust.get(base_cnt);
-                        agg2.println(str_nc);
-                        results.get(modNum).add(str_nc);
-                        bestNetClustLine.put(best_lines_clust.get(base_cnt).first, best_lines_clust.get(base_cnt).second);
-                        otherNetClustLine.remove(best_lines_clust.get(base_cnt).first);
-
-                        double[] m_x = calcMetrics(q, p, line_x.threshold().get(base_cnt));
-                        double[] m_y = calcMetrics(t, p, line_y.threshold().get(base_cnt));
-                        double val_x = BigDecimal.valueOf(m_x[2]).setScale(4, RoundingMode.HALF_UP).doubleValue();
-                        double val_y = BigDecimal.valueOf(m_y[2]).setScale(4, RoundingMode.HALF_UP).doubleValue();
-                        double auc_x = BigDecimal.valueOf(line_x.auc_roc()).setScale(4, RoundingMode.HALF_UP).doubleValue();
-                        double auc_y = BigDecimal.valueOf(line_y.auc_roc()).setScale(4, RoundingMode.HALF_UP).doubleValue();
-                        if (val_x > val_y) {
-                            agg1.println(title + "_module_" + modNum + "_x_" + base + ", metrics = " + Arrays.toString(m_x));
-                            String str_my = title + "_module_" + modNum + "_x_" + base + "," + val_x + "," + auc_x + "," + max_ica_auc_roc;
-                            agg2.println(str_my);
-                            results.get(modNum).add(str_my);
-                            theBest.add(new Pair<>(m_x[2], modNum));
-                        } else {
-                            agg1.println(title + "_module_" + modNum + "_y_" + base + ", metrics = " + Arrays.toString(m_y));
-                            String str_my = title + "_module_" + modNum + "_y_" + base + "," + val_y + "," + auc_y + "," + max_ica_auc_roc;
-                            agg2.println(str_my);
-                            results.get(modNum).add(str_my);
-                            theBest.add(new Pair<>(m_y[2], modNum));
-                        }
-                    }
-                    if (ANS_FILES_COUNT == 0) {
-                        double[] m_x = calcMetrics(q, p, line_x.threshold().get(line_x.threshold().size() - 1));
-                        double[] m_y = calcMetrics(t, p, line_y.threshold().get(line_y.threshold().size() - 1));
-                        if (m_x[2] > m_y[2]) {
-                            agg1.println(title + "_module_" + modNum + "_x_" + "nobase" + ", metrics = " + Arrays.toString(m_x));
-                            String str_my = title + "_module_" + modNum + "_x_" + "nobase" + "," + m_x[2] + "," + line_x.auc_roc() + "," + max_ica_auc_roc;
-                            agg2.println(str_my);
-                            results.get(modNum).add(str_my);
-                            theBest.add(new Pair<>(m_x[2], modNum));
-                        } else {
-                            agg1.println(title + "_module_" + modNum + "_y_" + "nobase" + ", metrics = " + Arrays.toString(m_y));
-                            String str_my = title + "_module_" + modNum + "_y_" + "nobase" + "," + m_y[2] + "," + line_y.auc_roc() + "," + max_ica_auc_roc;
-                            agg2.println(str_my);
-                            results.get(modNum).add(str_my);
-                            theBest.add(new Pair<>(m_y[2], modNum));
-                        }
-                    }
+            // confidence intervals of every curve at the thresholds reported below, paired replicates:
+            List<double[]> thresholds = new ArrayList<>();
+            for (int i = 0; i < clusters.size(); i++) {
+                thresholds.add(new double[]{1 - EPS});
+            }
+            thresholds.add(points_x.stream().mapToDouble(DrawUtils::threshold).toArray());
+            thresholds.add(points_y.stream().mapToDouble(DrawUtils::threshold).toArray());
+            for (int i = 0; i < fast_ica.size(); i++) {
+                thresholds.add(new double[0]);
+            }
+            List<Bootstrap.CurveIntervals> intervals = BOOTSTRAP.intervals(p, ranked, thresholds);
+            Bootstrap.CurveIntervals ci_x = intervals.get(clusters.size());
+            Bootstrap.CurveIntervals ci_y = intervals.get(clusters.size() + 1);
 
-//                    graph.saveAsDOT(
-//                            "./pictures/",
-//                            title + "_x",
-//                            x,
-//                            q,
-//                            new Pair<>(line_x.threshold().get(line_x.threshold().size() - 1), p),
-//                            modNum,
-//                            false
-//                    );
-//                    graph.saveAsDOT(
-//                            "./pictures/",
-//                            title + "_y",
-//                            y,
-//                            t,
-//                            new Pair<>(line_y.threshold().get(line_y.threshold().size() - 1), p),
-//                            modNum,
-//                            false
-//                    );
-
-                    ROC.draw(title + "_module_" + modNum, myLine, bestNetClustLine, otherNetClustLine);
+            for (int i = 0; i < records_clust.size(); i++) {
+                sink.accept(withIntervals(records_clust.get(i), "nc_cluster", intervals.get(i), 0));
+            }
+
+            double max_ica_auc_roc = 0;
+            for (int i = 0; i < fast_ica.size(); i++) {
+                ROC.ROCLine ica_line = ranked.get(clusters.size() + 2 + i).line(null);
+                myLine.put("ICA" + i, ica_line);
+                sink.accept(withIntervals(
+                        record(dataset, title, modNum, "ica", "", i, null, ica_line.auc_roc(), ica_line.auc_roc(), timeMs),
+                        "ica", intervals.get(clusters.size() + 2 + i), -1
+                ));
+                if (max_ica_auc_roc < ica_line.auc_roc()) {
+                    max_ica_auc_roc = ica_line.auc_roc();
                 }
+            }
 
-                try (PrintWriter agg3 = new PrintWriter(new FileOutputStream("./aggregate/agg3.txt", true))) {
-                    agg3.println("--------------------");
-                    theBest.sort(Comparator.comparing(p -> p.first));
-                    Collections.reverse(theBest);
-                    int countBest = 0;
-                    HashSet<Integer> st = new HashSet<>();
-                    for (Pair<Double, Integer> pair : theBest) {
-                        if (!st.contains(pair.second)) {
-                            st.add(pair.second);
-                            for (String str : results.get(pair.second)) {
-                                agg3.println(str);
-                            }
-                            countBest++;
-                        }
-                        if (countBest >= 2) break;
-                    }
+            for (int base_cnt = 0; base_cnt < ANS_FILES_COUNT; base_cnt++) {
+                String base = baseName(base_cnt);
+
+                int best = best_index_clust.get(base_cnt);
+                sink.accept(withIntervals(records_clust.get(best), "nc", intervals.get(best), 0));
+                bestNetClustLine.put(best_lines_clust.get(base_cnt).first, best_lines_clust.get(base_cnt).second);
+                otherNetClustLine.remove(best_lines_clust.get(base_cnt).first);
+
+                double[] m_x = metrics(points_x.get(base_cnt));
+                double[] m_y = metrics(points_y.get(base_cnt));
+                double val_x = BigDecimal.valueOf(m_x[2]).setScale(4, RoundingMode.HALF_UP).doubleValue();
+                double val_y = BigDecimal.valueOf(m_y[2]).setScale(4, RoundingMode.HALF_UP).doubleValue();
+                if (val_x > val_y) {
+                    Record record = record(dataset, title, modNum, "x", base, -1, m_x, line_x.auc_roc(), max_ica_auc_roc, timeMs);
+                    sink.accept(withIntervals(record, "x", ci_x, base_cnt));
+                } else {
+                    Record record = record(dataset, title, modNum, "y", base, -1, m_y, line_y.auc_roc(), max_ica_auc_roc, timeMs);
+                    sink.accept(withIntervals(record, "y", ci_y, base_cnt));
                 }
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            if (ANS_FILES_COUNT == 0) {
+                double[] m_x = metrics(points_x.get(points_x.size() - 1));
+                double[] m_y = metrics(points_y.get(points_y.size() - 1));
+                if (m_x[2] > m_y[2]) {
+                    Record record = record(dataset, title, modNum, "x", "nobase", -1, m_x, line_x.auc_roc(), max_ica_auc_roc, timeMs);
+                    sink.accept(withIntervals(record, "x", ci_x, points_x.size() - 1));
+                } else {
+                    Record record = record(dataset, title, modNum, "y", "nobase", -1, m_y, line_y.auc_roc(), max_ica_auc_roc, timeMs);
+                    sink.accept(withIntervals(record, "y", ci_y, points_y.size() - 1));
+                }
+            }
+
+//            graph.saveAsDOT(
+//                    "./pictures/",
+//                    title + "_x",
+//                    x,
+//                    q,
+//                    new Pair<>(line_x.threshold().get(line_x.threshold().size() - 1), p),
+//                    modNum,
+//                    false
+//            );
+//            graph.saveAsDOT(
+//                    "./pictures/",
+//                    title + "_y",
+//                    y,
+//                    t,
+//                    new Pair<>(line_y.threshold().get(line_y.threshold().size() - 1), p),
+//                    modNum,
+//                    false
+//            );
+
+            charts.add(ROC.draw(title + "_module_" + modNum, myLine, bestNetClustLine, otherNetClustLine));
         }
+        return new Evaluation(records, charts);
     }
 
-    private static double[] calcMetrics(Double[] predictions, Boolean[] labels, double threshold) {
-        double TP = 0, TN = 0, FP = 0, FN = 0, precision = 0, recall = 0, f1score = 0;
-        for (int i = 0; i < labels.length; i++) {
-            if (predictions[i] >= threshold && labels[i]) TP += 1;
-            if (predictions[i] >= threshold && !labels[i]) FP += 1;
-            if (predictions[i] < threshold && labels[i]) FN += 1;
-            if (predictions[i] < threshold && !labels[i]) TN += 1;
-        }
-        if (TP + FP != 0) {
-            precision = TP / (TP + FP);
+    // private methods:
+
+    /**
+     * size-matched points of a single sweep for every size, then the FALSE_POSITIVE_RATE point,
+     * null points if every score is NaN
+     */
+    private static List<ThresholdSweep.OperatingPoint> operatingPoints(ThresholdSweep sweep, List<Integer> sizes) {
+        List<ThresholdSweep.OperatingPoint> res = new ArrayList<>();
+        ThresholdSweep.Selection selection = null;
+        for (int size : sizes) {
+            selection = sweep.select(FALSE_POSITIVE_RATE, size);
+            res.add(selection.size());
         }
-        if (TP + FN != 0) {
-            recall = TP / (TP + FN);
+        res.add((selection != null) ? selection.falsePositiveRate() : sweep.atFalsePositiveRate(FALSE_POSITIVE_RATE));
+        return res;
+    }
+
+    /**
+     * predictions >= threshold, NaN predicts nothing as in {@link RankedScores#metrics}
+     */
+    private static double threshold(ThresholdSweep.OperatingPoint point) {
+        return (point == null) ? Double.NaN : point.threshold();
+    }
+
+    /**
+     * @return {precision, recall, f1score, TP + FP} as {@link RankedScores#metrics}
+     */
+    private static double[] metrics(ThresholdSweep.OperatingPoint point) {
+        if (point == null) {
+            return new double[]{0, 0, 0, 0};
         }
-        if (precision + recall != 0) {
-            f1score = 2 * precision * recall / (precision + recall);
+        return new double[]{point.precision(), point.recall(), point.f1score(), point.predicted()};
+    }
+
+    private static String baseName(int base_cnt) {
+        if (base_cnt == 0) {
+            return "0.25";
+        } else if (base_cnt == 1) {
+            return "0.4";
+        } else if (base_cnt == 2) {
+            return "0.5";
+        } else {
+            throw new RuntimeException("unexpected");
         }
-        return new double[]{precision, recall, f1score, TP + FP};
     }
 
-    private static Boolean[] readAsBooleanArray(String f) throws IOException {
-        BufferedReader arg = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8));
-        return arg.lines().map(Double::parseDouble).map(x -> (Math.abs(x - 1.0) < EPS)).toList().toArray(new Boolean[0]);
+    /**
+     * @param metrics {precision, recall, f1score, TP + FP} or null if not applicable
+     */
+    private static Record record(
+            String dataset,
+            String title,
+            int modNum,
+            String method,
+            String base,
+            int component,
+            double[] metrics,
+            double aucRoc,
+            double icaAucRoc,
+            long timeMs
+    ) {
+        if (metrics == null) {
+            metrics = new double[]{Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        }
+        return new Record(
+                ResultsStore.SESSION, title, dataset, modNum, method, base, component,
+                metrics[0], metrics[1], metrics[2], Double.NaN, Double.NaN, metrics[3],
+                aucRoc, Double.NaN, Double.NaN, icaAucRoc, timeMs
+        );
     }
 
-    private static Double[] readAsDoubleArray(String f) throws IOException {
-        BufferedReader arg = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8));
-        return arg.lines().map(Double::parseDouble).toList().toArray(new Double[0]);
+    /**
+     * @param threshold index of the F1 interval, -1 if there is none
+     */
+    private static Record withIntervals(Record r, String method, Bootstrap.CurveIntervals ci, int threshold) {
+        Bootstrap.Interval f1 = (threshold == -1) ? new Bootstrap.Interval(Double.NaN, Double.NaN, Double.NaN) : ci.f1score().get(threshold);
+        return new Record(
+                r.session(), r.title(), r.dataset(), r.module(), method, r.base(), r.component(),
+                r.precision(), r.recall(), r.f1score(), f1.lower(), f1.upper(), r.predicted(),
+                r.aucRoc(), ci.auc().lower(), ci.auc().upper(), r.icaAucRoc(), r.timeMs()
+        );
     }
 }
@@ -0,0 +1,161 @@
+package drawing;
+
+import graph.EdgeSelection;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything {@link DrawUtils#newDraw} evaluates, as primitive arrays handed over in memory:
+ * true module labels, netclust clusters per base, FastICA components and one found solution.
+ * The ./answers file layout is kept only as an optional dump via {@link #write} and {@link #read}.
+ */
+public record EvaluationInput(
+        boolean[][] modules,
+        int[] clusterSizes,
+        List<double[]> clusters,
+        List<double[]> fastIca,
+        double[] q,
+        EdgeSelection x,
+        double[] t,
+        EdgeSelection y
+) {
+    private static final double EPS = 1e-6;
+
+    /**
+     * baseline part without a solution, see {@link #withSolution}
+     */
+    public static EvaluationInput baselines(
+            boolean[][] modules,
+            int[] clusterSizes,
+            List<double[]> clusters,
+            List<double[]> fastIca
+    ) {
+        return new EvaluationInput(modules, clusterSizes, clusters, fastIca, null, null, null, null);
+    }
+
+    public EvaluationInput withSolution(double[] q, EdgeSelection x, double[] t, EdgeSelection y) {
+        return new EvaluationInput(modules, clusterSizes, clusters, fastIca, q, x, t, y);
+    }
+
+    /**
+     * @return clusters of the base number base_cnt
+     */
+    public List<double[]> clustersOf(int base_cnt) {
+        int from = 0;
+        for (int i = 0; i < base_cnt; i++) {
+            from += clusterSizes[i];
+        }
+        return clusters.subList(from, from + clusterSizes[base_cnt]);
+    }
+
+    /**
+     * reads the file layout written by {@link #write}
+     */
+    public static EvaluationInput read(String folder) throws IOException {
+        double[] clust_size = readAsDoubleArray(folder + "0_clust_size.txt");
+        double[] module_size = readAsDoubleArray(folder + "0_module_size.txt");
+        double[] fast_ica_size = readAsDoubleArray(folder + "0_fast_ica_size.txt");
+
+        boolean[][] modules = new boolean[(int) module_size[0]][];
+        for (int modNum = 0; modNum < modules.length; modNum++) {
+            double[] p = readAsDoubleArray(folder + "p_ans_" + modNum + ".txt");
+            modules[modNum] = new boolean[p.length];
+            for (int i = 0; i < p.length; i++) {
+                modules[modNum][i] = Math.abs(p[i] - 1.0) < EPS;
+            }
+        }
+
+        int[] clusterSizes = new int[clust_size.length];
+        List<double[]> clusters = new ArrayList<>();
+        for (int base_cnt = 0; base_cnt < clusterSizes.length; base_cnt++) {
+            clusterSizes[base_cnt] = (int) clust_size[base_cnt];
+            for (int clustNum = 0; clustNum < clusterSizes[base_cnt]; clustNum++) {
+                clusters.add(readAsDoubleArray(folder + (base_cnt + 1) + "_nc_ans_" + clustNum + ".txt"));
+            }
+        }
+
+        List<double[]> fastIca = new ArrayList<>();
+        for (int i = 0; i < fast_ica_size[0]; i++) {
+            fastIca.add(readAsDoubleArray(folder + "ica_ans_" + i + ".txt"));
+        }
+
+        return new EvaluationInput(
+                modules, clusterSizes, clusters, fastIca,
+                readAsDoubleArray(folder + "q.txt"),
+                EdgeSelection.read(folder + "x.txt"),
+                readAsDoubleArray(folder + "t.txt"),
+                EdgeSelection.read(folder + "y.txt")
+        );
+    }
+
+    /**
+     * dumps the input in the ./answers file layout, the solution part only if it is set
+     */
+    public void write(String folder) throws IOException {
+        try (PrintWriter out = new PrintWriter(folder + "0_clust_size.txt")) {
+            for (int size : clusterSizes)
+                out.println(size);
+        }
+        for (int base_cnt = 0; base_cnt < clusterSizes.length; base_cnt++) {
+            List<double[]> base = clustersOf(base_cnt);
+            for (int w = 0; w < base.size(); w++) {
+                writeArray(folder + (base_cnt + 1) + "_nc_ans_" + w + ".txt", base.get(w));
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(folder + "0_module_size.txt")) {
+            out.println(modules.length);
+        }
+        for (int w = 0; w < modules.length; w++) {
+            try (PrintWriter out = new PrintWriter(folder + "p_ans_" + w + ".txt")) {
+                for (boolean val : modules[w]) {
+                    out.println(val ? 1.0 : 0.0);
+                }
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(folder + "0_fast_ica_size.txt")) {
+            out.println(fastIca.size());
+        }
+        for (int w = 0; w < fastIca.size(); w++) {
+            try (PrintWriter out = new PrintWriter(folder + "ica_ans_" + w + ".txt")) {
+                for (double val : fastIca.get(w)) {
+                    out.println(String.format("%.10f", val).replaceAll(",", "."));
+                }
+            }
+        }
+
+        if (q != null) {
+            writeArray(folder + "q.txt", q);
+            try (PrintWriter out = new PrintWriter(folder + "x.txt")) {
+                x.write(out);
+            }
+            writeArray(folder + "t.txt", t);
+            try (PrintWriter out = new PrintWriter(folder + "y.txt")) {
+                y.write(out);
+            }
+        }
+    }
+
+    // private methods:
+
+    private static void writeArray(String f, double[] values) throws IOException {
+        try (PrintWriter out = new PrintWriter(f)) {
+            for (double val : values) {
+                out.println(val);
+            }
+        }
+    }
+
+    private static double[] readAsDoubleArray(String f) throws IOException {
+        try (BufferedReader arg = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8))) {
+            return arg.lines().mapToDouble(Double::parseDouble).toArray();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package drawing;
+
+import utils.Pair;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * static class
+ * <p>
+ * Offscreen replacement for {@link DrawAPI}: the same ROC chart is painted straight into a {@link BufferedImage}
+ * and encoded to "./pictures/{title}.png" on a worker pool, no JavaFX toolkit or display is needed.
+ * Every chart is written as soon as it is submitted, a run waits for its own charts with {@link #await}.
+ */
+public class HeadlessChart {
+
+    /**
+     * constants
+     */
+    private static final String FOLDER = "./pictures/";
+    private static final int SIZE = 1000;
+    private static final int PLOT = 800;
+    private static final int LEFT = 120;
+    private static final int TOP = 60;
+    private static final Color[] PALETTE = {
+            new Color(0xF3622D), new Color(0xFBA71B), new Color(0x57B757), new Color(0x41A9C9),
+            new Color(0x4258C9), new Color(0x9A42C8), new Color(0xC84164), new Color(0x888888)
+    };
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            r -> {
+                Thread thread = new Thread(r, "headless-chart");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    /**
+     * public static methods
+     */
+
+    /**
+     * renders and writes the chart on the worker pool, arguments must not be changed afterwards
+     *
+     * @return future of the written file
+     */
+    public static Future<?> submit(
+            String title,
+            DrawAPI.Axis xAxisData,
+            DrawAPI.Axis yAxisData,
+            Map<String, ROC.ROCLine> myLine,
+            Map<String, ROC.ROCLine> bestNetClustLine,
+            Map<String, ROC.ROCLine> otherNetClustLine
+    ) {
+        File file = new File(FOLDER + title.replaceAll("\\s", "_") + ".png");
+        return POOL.submit(() -> {
+            BufferedImage image = render(title, xAxisData, yAxisData, myLine, bestNetClustLine, otherNetClustLine);
+            try {
+                ImageIO.write(image, "png", file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * waits until the given charts are written, the first failure is rethrown
+     */
+    public static void await(List<Future<?>> charts) {
+        try {
+            for (Future<?> future : charts) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public static BufferedImage render(
+            String title,
+            DrawAPI.Axis xAxisData,
+            DrawAPI.Axis yAxisData,
+            Map<String, ROC.ROCLine> myLine,
+            Map<String, ROC.ROCLine> bestNetClustLine,
+            Map<String, ROC.ROCLine> otherNetClustLine
+    ) {
+        List<Pair<String, List<Pair<Number, Number>>>> series = new ArrayList<>();
+        List<String> legend = new ArrayList<>();
+
+        for (String lineName : myLine.keySet()) {
+            String name = lineName + String.format(" (%.2f) ", myLine.get(lineName).auc_roc());
+            series.add(new Pair<>(name, myLine.get(lineName).line()));
+            legend.add(name);
+        }
+        for (String lineName : bestNetClustLine.keySet()) {
+            String name = lineName + String.format(" (%.2f) ", bestNetClustLine.get(lineName).auc_roc());
+            series.add(new Pair<>(name, getMarker(bestNetClustLine.get(lineName).line().get(1), 0.005)));
+            legend.add(name);
+        }
+        for (String lineName : otherNetClustLine.keySet()) {
+            series.add(new Pair<>(" ", getMarker(otherNetClustLine.get(lineName).line().get(1), 0.003)));
+        }
+
+        double[] xBounds = bounds(xAxisData, series, true);
+        double[] yBounds = bounds(yAxisData, series, false);
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, SIZE, SIZE);
+
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+            drawCentered(g, "AUC ROC for \"" + title + "\"", LEFT + PLOT / 2, TOP - 20);
+
+            drawAxes(g, xAxisData, yAxisData, xBounds, yBounds);
+
+            g.setClip(LEFT, TOP, PLOT + 1, PLOT + 1);
+            g.setStroke(new BasicStroke(2f));
+            for (int s = 0; s < series.size(); s++) {
+                List<Pair<Number, Number>> points = series.get(s).second;
+                if (points.isEmpty()) continue;
+                Path2D.Double path = new Path2D.Double();
+                for (int i = 0; i < points.size(); i++) {
+                    double px = toPixelX(points.get(i).first.doubleValue(), xBounds);
+                    double py = toPixelY(points.get(i).second.doubleValue(), yBounds);
+                    if (i == 0) path.moveTo(px, py);
+                    else path.lineTo(px, py);
+                }
+                g.setColor(PALETTE[s % PALETTE.length]);
+                g.draw(path);
+            }
+            g.setClip(null);
+
+            drawLegend(g, legend, series);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    // private methods:
+
+    /**
+     * same four points as the marker series of {@link DrawAPI}
+     */
+    private static List<Pair<Number, Number>> getMarker(Pair<Number, Number> point, double small) {
+        List<Pair<Number, Number>> res = new ArrayList<>();
+        for (Pair<Double, Double> iter : List.of(
+                new Pair<>(-small, small),
+                new Pair<>(small, -small),
+                new Pair<>(small, small),
+                new Pair<>(-small, -small))
+        ) {
+            res.add(new Pair<>(
+                    point.first.doubleValue() + iter.first,
+                    point.second.doubleValue() + iter.second
+            ));
+        }
+        return res;
+    }
+
+    /**
+     * @return {lower, upper, step} of the axis, computed from the data if it is auto-ranging
+     */
+    private static double[] bounds(DrawAPI.Axis axis, List<Pair<String, List<Pair<Number, Number>>>> series, boolean isX) {
+        if (!axis.auto()) {
+            return new double[]{axis.lowerBound(), axis.upperBound(), axis.step()};
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Pair<String, List<Pair<Number, Number>>> s : series) {
+            for (Pair<Number, Number> point : s.second) {
+                double val = (isX ? point.first : point.second).doubleValue();
+                min = Math.min(min, val);
+                max = Math.max(max, val);
+            }
+        }
+        if (min > max) {
+            min = 0;
+            max = 1;
+        } else if (max - min < 1e-12) {
+            min -= 0.5;
+            max += 0.5;
+        }
+        double step = Math.pow(10, Math.floor(Math.log10((max - min) / 5)));
+        return new double[]{Math.floor(min / step) * step, Math.ceil(max / step) * step, step};
+    }
+
+    private static double toPixelX(double x, double[] bounds) {
+        return LEFT + (x - bounds[0]) / (bounds[1] - bounds[0]) * PLOT;
+    }
+
+    private static double toPixelY(double y, double[] bounds) {
+        return TOP + PLOT - (y - bounds[0]) / (bounds[1] - bounds[0]) * PLOT;
+    }
+
+    private static void drawAxes(Graphics2D g, DrawAPI.Axis xAxisData, DrawAPI.Axis yAxisData, double[] xBounds, double[] yBounds) {
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+        g.setStroke(new BasicStroke(1f));
+        for (int k = 0; xBounds[0] + k * xBounds[2] <= xBounds[1] + 1e-9; k++) {
+            double val = xBounds[0] + k * xBounds[2];
+            int px = (int) Math.round(toPixelX(val, xBounds));
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawLine(px, TOP, px, TOP + PLOT);
+            g.setColor(Color.BLACK);
+            g.drawLine(px, TOP + PLOT, px, TOP + PLOT + 6);
+            drawCentered(g, format(val, xBounds[2]), px, TOP + PLOT + 24);
+        }
+        for (int k = 0; yBounds[0] + k * yBounds[2] <= yBounds[1] + 1e-9; k++) {
+            double val = yBounds[0] + k * yBounds[2];
+            int py = (int) Math.round(toPixelY(val, yBounds));
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawLine(LEFT, py, LEFT + PLOT, py);
+            g.setColor(Color.BLACK);
+            g.drawLine(LEFT - 6, py, LEFT, py);
+            String label = format(val, yBounds[2]);
+            g.drawString(label, LEFT - 10 - g.getFontMetrics().stringWidth(label), py + 5);
+        }
+        g.setColor(Color.BLACK);
+        g.drawRect(LEFT, TOP, PLOT, PLOT);
+
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 16));
+        drawCentered(g, xAxisData.name(), LEFT + PLOT / 2, TOP + PLOT + 50);
+        Graphics2D rotated = (Graphics2D) g.create();
+        try {
+            rotated.rotate(-Math.PI / 2);
+            drawCentered(rotated, yAxisData.name(), -(TOP + PLOT / 2), LEFT - 60);
+        } finally {
+            rotated.dispose();
+        }
+    }
+
+    private static void drawLegend(Graphics2D g, List<String> legend, List<Pair<String, List<Pair<Number, Number>>>> series) {
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+        FontMetrics metrics = g.getFontMetrics();
+        int x = LEFT;
+        int y = TOP + PLOT + 80;
+        for (int s = 0; s < series.size(); s++) {
+            String name = series.get(s).first;
+            if (!legend.contains(name)) continue;
+            int width = 24 + metrics.stringWidth(name);
+            if (x + width > LEFT + PLOT) {
+                x = LEFT;
+                y += 20;
+            }
+            g.setColor(PALETTE[s % PALETTE.length]);
+            g.fillOval(x, y - 10, 10, 10);
+            g.setColor(Color.BLACK);
+            g.drawString(name, x + 14, y);
+            x += width;
+        }
+    }
+
+    private static void drawCentered(Graphics2D g, String text, int x, int y) {
+        g.drawString(text, x - g.getFontMetrics().stringWidth(text) / 2, y);
+    }
+
+    private static String format(double val, double step) {
+        int digits = Math.max(0, (int) -Math.floor(Math.log10(step) + 1e-9));
+        return String.format("%." + digits + "f", val).replaceAll(",", ".");
+    }
+}
@@ -0,0 +1,236 @@
+package drawing;
+
+import utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One score vector sorted once in descending order against fixed labels, with prefix counts of
+ * true and false positives. ROC line, AUC and metrics at any threshold are then read from the counts,
+ * results are identical to {@link ROC#getLine} and the per-threshold metric scans.
+ */
+public class RankedScores {
+    private static final double EPS = 1e-6;
+
+    /**
+     * scores in the original gene order, not copied
+     */
+    private final double[] scores;
+    /**
+     * scores in descending {@link Double#compare} order, labels in the same order,
+     * NaN scores come first by descending index as after the stable sort and reverse in {@link ROC#getLine}
+     */
+    private final double[] values;
+    private final boolean[] labels;
+    /**
+     * truePositives[k] = number of positive labels among the first k values
+     */
+    private final int[] truePositives;
+    private final int nanCount;
+    private final int positiveNanCount;
+    private final int h;
+    private final int w;
+
+    /**
+     * @param positives indexes of positive labels, ascending
+     * @param negatives indexes of negative labels, ascending
+     */
+    RankedScores(double[] scores, int[] positives, int[] negatives) {
+        int n = scores.length;
+        this.scores = scores;
+        this.h = positives.length;
+        this.w = negatives.length;
+
+        double[] pos = new double[h];
+        for (int i = 0; i < h; i++) pos[i] = scores[positives[i]];
+        double[] neg = new double[w];
+        for (int i = 0; i < w; i++) neg[i] = scores[negatives[i]];
+        Arrays.sort(pos);
+        Arrays.sort(neg);
+
+        this.values = new double[n];
+        this.labels = new boolean[n];
+        this.truePositives = new int[n + 1];
+
+        // NaN scores are sorted to the end of both arrays:
+        int k = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            if (Double.isNaN(scores[i])) {
+                values[k] = scores[i];
+                labels[k] = isPositive(positives, i);
+                truePositives[k + 1] = truePositives[k] + (labels[k] ? 1 : 0);
+                k++;
+            }
+        }
+        this.nanCount = k;
+        this.positiveNanCount = truePositives[k];
+
+        // merge of two ascending arrays from the end gives descending order:
+        int hi = h - positiveNanCount - 1;
+        int wi = w - (nanCount - positiveNanCount) - 1;
+        for (; k < n; k++) {
+            boolean takePositive = (wi < 0) || (hi >= 0 && Double.compare(pos[hi], neg[wi]) >= 0);
+            values[k] = takePositive ? pos[hi--] : neg[wi--];
+            labels[k] = takePositive;
+            truePositives[k + 1] = truePositives[k] + (takePositive ? 1 : 0);
+        }
+    }
+
+    public static RankedScores of(double[] scores, boolean[] labels) {
+        return new BatchEvaluator(labels).rank(scores);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * same points and thresholds as {@link ROC#getLine}
+     */
+    public ROC.ROCLine line(List<Integer> activeModuleSize) {
+        int n = values.length;
+
+        double x = 0;
+        double y = 0;
+
+        double stepX = 1.0 / (double) w;
+        double stepY = 1.0 / (double) h;
+
+        int threshold_index = -1;
+        double threshold = -1e6;
+
+        List<Pair<Number, Number>> points = new ArrayList<>();
+        points.add(new Pair<>(x, y));
+
+        for (int i = 0; i < n; i++) {
+            int cnt = i;
+            while ((cnt + 1) < n && (Math.abs(values[cnt] - values[cnt + 1]) < EPS)) {
+                cnt++;
+            }
+            int a = truePositives[cnt + 1] - truePositives[i];
+            int b = (cnt + 1 - i) - a;
+            y += stepY * a;
+            x += stepX * b;
+            points.add(new Pair<>(x, y));
+
+            if (x >= 0.03 && threshold_index == -1) {
+                threshold_index = points.size() - 1;
+                threshold = values[threshold_index];
+            }
+
+            i = cnt;
+        }
+
+        List<Integer> threshold_index_ans = new ArrayList<>();
+        List<Double> threshold_ans = new ArrayList<>();
+
+        if (activeModuleSize != null && activeModuleSize.size() != 0) {
+            for (int size : activeModuleSize) {
+                if (size <= 1) size = 1;
+                threshold_index_ans.add(size - 1);
+                threshold_ans.add(values[size - 1]);
+            }
+        }
+
+        threshold_index_ans.add(threshold_index);
+        threshold_ans.add(threshold);
+
+        return new ROC.ROCLine(points, auc(), threshold_index_ans, threshold_ans);
+    }
+
+    /**
+     * Mann-Whitney AUC: over all (negative, positive) pairs, 1 if the positive scores higher, 0.5 on an exact tie
+     * (or if any score is NaN), 0 otherwise, divided by the number of pairs; counted over groups of exactly equal
+     * scores of the shared order
+     */
+    public double auc() {
+        if ((long) h * w == 0) {
+            throw new RuntimeException("divide by zero!");
+        }
+        int negativeNanCount = nanCount - positiveNanCount;
+
+        // doubled numerator: 2 per strictly lower negative, 1 per tie
+        long numerator2 = (long) positiveNanCount * w;
+        long lower = 0;
+        int end = values.length;
+        while (end > nanCount) {
+            int start = end - 1;
+            while (start > nanCount && values[start - 1] == values[end - 1]) start--;
+            int a = truePositives[end] - truePositives[start];
+            int b = (end - start) - a;
+            numerator2 += (long) a * (2 * lower + b + negativeNanCount);
+            lower += b;
+            end = start;
+        }
+
+        return (numerator2 / 2.0) / ((double) h * w);
+    }
+
+    /**
+     * @return {precision, recall, f1score, TP + FP} of predictions >= threshold, NaN scores are neither
+     * predicted nor rejected
+     */
+    public double[] metrics(double threshold) {
+        double TP = 0, FP = 0, FN = 0, precision = 0, recall = 0, f1score = 0;
+        if (!Double.isNaN(threshold)) {
+            int k = countAtLeast(threshold);
+            TP = truePositives[nanCount + k] - positiveNanCount;
+            FP = k - TP;
+            FN = (h - positiveNanCount) - TP;
+        }
+        if (TP + FP != 0) {
+            precision = TP / (TP + FP);
+        }
+        if (TP + FN != 0) {
+            recall = TP / (TP + FN);
+        }
+        if (precision + recall != 0) {
+            f1score = 2 * precision * recall / (precision + recall);
+        }
+        return new double[]{precision, recall, f1score, TP + FP};
+    }
+
+    /**
+     * precision, recall and F1 at every distinct threshold, one pass over the shared order
+     */
+    public ThresholdSweep sweep() {
+        return new ThresholdSweep(values, labels, nanCount);
+    }
+
+    double[] scores() {
+        return scores;
+    }
+
+    double[] values() {
+        return values;
+    }
+
+    int nanCount() {
+        return nanCount;
+    }
+
+    // private methods:
+
+    private static boolean isPositive(int[] positives, int index) {
+        return Arrays.binarySearch(positives, index) >= 0;
+    }
+
+    /**
+     * number of non-NaN values >= threshold, binary search over the descending order
+     */
+    private int countAtLeast(double threshold) {
+        int lo = nanCount;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] >= threshold) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - nanCount;
+    }
+}
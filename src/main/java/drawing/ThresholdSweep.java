@@ -0,0 +1,150 @@
+package drawing;
+
+/**
+ * Precision, recall and F1 at every distinct threshold of one {@link RankedScores}, read in a single pass
+ * over its prefix counts. Point k predicts every non-NaN score >= threshold(k), thresholds are descending,
+ * values are identical to {@link RankedScores#metrics} at the same threshold.
+ */
+public class ThresholdSweep {
+
+    public record OperatingPoint(
+            double threshold,
+            double precision,
+            double recall,
+            double f1score,
+            int predicted,
+            double falsePositiveRate
+    ) {
+        // nothing
+    }
+
+    /**
+     * F1-optimal, FPR-constrained and size-matched points of the same sweep
+     */
+    public record Selection(
+            OperatingPoint bestF1,
+            OperatingPoint falsePositiveRate,
+            OperatingPoint size
+    ) {
+        // nothing
+    }
+
+    private final double[] thresholds;
+    private final int[] predicted;
+    private final int[] truePositives;
+    /**
+     * non-NaN positives and negatives
+     */
+    private final int positives;
+    private final int negatives;
+
+    ThresholdSweep(double[] values, boolean[] labels, int nanCount) {
+        int n = values.length;
+        int groups = 0;
+        for (int i = nanCount; i < n; i++) {
+            if (i == nanCount || values[i] != values[i - 1]) groups++;
+        }
+        this.thresholds = new double[groups];
+        this.predicted = new int[groups];
+        this.truePositives = new int[groups];
+
+        int k = -1;
+        int tp = 0;
+        for (int i = nanCount; i < n; i++) {
+            if (i == nanCount || values[i] != values[i - 1]) k++;
+            if (labels[i]) tp++;
+            thresholds[k] = values[i];
+            predicted[k] = i + 1 - nanCount;
+            truePositives[k] = tp;
+        }
+        this.positives = tp;
+        this.negatives = (n - nanCount) - tp;
+    }
+
+    /**
+     * @return count of distinct non-NaN thresholds
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    public OperatingPoint point(int k) {
+        double TP = truePositives[k];
+        double FP = predicted[k] - TP;
+        double FN = positives - TP;
+        double precision = 0, recall = 0, f1score = 0;
+        if (TP + FP != 0) {
+            precision = TP / (TP + FP);
+        }
+        if (TP + FN != 0) {
+            recall = TP / (TP + FN);
+        }
+        if (precision + recall != 0) {
+            f1score = 2 * precision * recall / (precision + recall);
+        }
+        double fpr = (negatives == 0) ? 0 : FP / negatives;
+        return new OperatingPoint(thresholds[k], precision, recall, f1score, predicted[k], fpr);
+    }
+
+    /**
+     * @return point with the maximal F1, the highest threshold among equal ones
+     */
+    public OperatingPoint bestF1() {
+        int best = -1;
+        double bestF1 = -1;
+        for (int k = 0; k < thresholds.length; k++) {
+            double f1score = point(k).f1score();
+            if (f1score > bestF1) {
+                bestF1 = f1score;
+                best = k;
+            }
+        }
+        return (best == -1) ? null : point(best);
+    }
+
+    /**
+     * @return first point whose false positive rate reaches maxRate, or the last point if it is never reached;
+     * unlike the 3% point of {@link RankedScores#line} only exactly equal scores are grouped
+     */
+    public OperatingPoint atFalsePositiveRate(double maxRate) {
+        if (thresholds.length == 0) {
+            return null;
+        }
+        int lo = 0;
+        int hi = thresholds.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (predicted[mid] - truePositives[mid] >= maxRate * negatives) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return point(lo);
+    }
+
+    /**
+     * @return point whose threshold is the score of rank size (1-based) among non-NaN scores, ties are predicted too;
+     * the activeModuleSize thresholds of {@link RankedScores#line} count NaN scores in the rank
+     */
+    public OperatingPoint atSize(int size) {
+        if (thresholds.length == 0) {
+            return null;
+        }
+        int lo = 0;
+        int hi = thresholds.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (predicted[mid] >= size) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return point(lo);
+    }
+
+    public Selection select(double maxRate, int size) {
+        return new Selection(bestF1(), atFalsePositiveRate(maxRate), atSize(size));
+    }
+}
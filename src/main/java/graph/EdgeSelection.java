@@ -0,0 +1,93 @@
+package graph;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Sparse set of selected directed edges (tree edges of x or y).
+ * File format: first line is the number of edges E, then one selected edge id per line.
+ */
+public class EdgeSelection {
+    private final int edgesCount;
+    private final BitSet selected;
+
+    public EdgeSelection(int edgesCount) {
+        this.edgesCount = edgesCount;
+        this.selected = new BitSet(edgesCount);
+    }
+
+    public static EdgeSelection fromValues(double[] x) {
+        EdgeSelection ans = new EdgeSelection(x.length);
+        for (int num = 0; num < x.length; num++) {
+            if (x[num] > 0.5) {
+                ans.add(num);
+            }
+        }
+        return ans;
+    }
+
+    public void add(int num) {
+        if (num < 0 || num >= edgesCount) {
+            throw new RuntimeException("unexpected edge number: " + num);
+        }
+        selected.set(num);
+    }
+
+    public boolean contains(int num) {
+        return selected.get(num);
+    }
+
+    /**
+     * @return count of selected edges
+     */
+    public int size() {
+        return selected.cardinality();
+    }
+
+    public int edgesCount() {
+        return edgesCount;
+    }
+
+    public IntStream stream() {
+        return selected.stream();
+    }
+
+    /**
+     * writes 0/1 values into dest, dest must be zero-filled
+     */
+    public void fillDense(double[] dest, int offset) {
+        for (int num = selected.nextSetBit(0); num >= 0; num = selected.nextSetBit(num + 1)) {
+            dest[offset + num] = 1;
+        }
+    }
+
+    public void write(PrintWriter out) {
+        out.println(edgesCount);
+        for (int num = selected.nextSetBit(0); num >= 0; num = selected.nextSetBit(num + 1)) {
+            out.println(num);
+        }
+    }
+
+    public static EdgeSelection read(String f) throws IOException {
+        List<String> lines = Files.readAllLines(Path.of(f), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new RuntimeException("expected edges count in the first line of " + f);
+        }
+        EdgeSelection ans = new EdgeSelection(Integer.parseInt(lines.get(0).trim()));
+        for (int i = 1; i < lines.size(); i++) {
+            ans.add(Integer.parseInt(lines.get(i).trim()));
+        }
+        return ans;
+    }
+
+    @Override
+    public String toString() {
+        return selected.toString();
+    }
+}
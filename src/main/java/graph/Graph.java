@@ -4,9 +4,7 @@ import utils.Pair;
 
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 
 public record Graph(
         Map<Integer, String> namingMap,
@@ -26,7 +24,7 @@ public record Graph(
         return graph.size();
     }
 
-    public void saveAsDOT(String folder, String graphName, Double[] x, Double[] q, Pair<Double, Boolean[]> modules, int module, boolean NO_OPT) {
+    public void saveAsDOT(String folder, String graphName, EdgeSelection x, Double[] q, Pair<Double, Boolean[]> modules, int module, boolean NO_OPT) {
         try (PrintWriter out = new PrintWriter(
                 folder + graphName + "_module" + module + ".dot", StandardCharsets.UTF_8
         )) {
@@ -74,22 +72,54 @@ public record Graph(
                             + v + "\\n" + String.format("%.3f", q[k]) + "\"];");
                 }
             });
-            for (int i = 0; i < edgesList.size(); i++) {
+            x.stream().forEach(i -> {
                 Pair<Integer, Integer> p = edgesList.get(i);
-                if ((Math.abs(x[i] - 1.0) < 1e-5)) {
-                    if ((q[p.first] > modules.first) && (q[p.second] > modules.first)) {
-                        out.println("N_" + p.first + " -> " + "N_" + p.second + " [ color = " + "blue" + " ];");
-                    } else if (NO_OPT) {
-                        out.println("N_" + p.first + " -> " + "N_" + p.second + " [ color = " + "yellow" + " ];");
-                    }
+                if ((q[p.first] > modules.first) && (q[p.second] > modules.first)) {
+                    out.println("N_" + p.first + " -> " + "N_" + p.second + " [ color = " + "blue" + " ];");
+                } else if (NO_OPT) {
+                    out.println("N_" + p.first + " -> " + "N_" + p.second + " [ color = " + "yellow" + " ];");
                 }
-            }
+            });
             out.println("}");
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return subgraph induced by the vertices, vertex i of the subgraph is vertices[i] of this graph
+     */
+    public Graph induced(int[] vertices) {
+        Map<Integer, Integer> index = new HashMap<>();
+        Map<Integer, String> subNamingMap = new HashMap<>();
+        List<List<Pair<Integer, Long>>> subGraph = new ArrayList<>();
+        for (int i = 0; i < vertices.length; i++) {
+            index.put(vertices[i], i);
+            subNamingMap.put(i, namingMap.get(vertices[i]));
+            subGraph.add(new ArrayList<>());
+        }
+
+        List<Pair<Integer, Integer>> subEdges = new ArrayList<>();
+        for (int num = 0; num < edgesList.size(); num += 2) {
+            Pair<Integer, Integer> edge = edgesList.get(num);
+            Integer from = index.get(edge.first);
+            Integer to = index.get(edge.second);
+            if (from == null || to == null) {
+                continue;
+            }
+
+            long a = subEdges.size();
+            subEdges.add(new Pair<>(from, to));
+            long b = subEdges.size();
+            subEdges.add(new Pair<>(to, from));
+
+            subGraph.get(from).add(new Pair<>(to, a));
+            subGraph.get(to).add(new Pair<>(from, b));
+        }
+
+        return new Graph(subNamingMap, subGraph, subEdges);
+    }
+
     public static int companionEdge(int num) {
         if (num % 2 == 0) {
             return num + 1;
@@ -0,0 +1,277 @@
+package graph;
+
+import utils.Pair;
+
+import java.util.*;
+
+/**
+ * Multilevel balanced partitioning with a small edge cut:
+ * coarsening by random matching, greedy graph growing on the coarsest level,
+ * then uncoarsening with boundary refinement on every level.
+ * The result is reproducible for a fixed seed.
+ */
+public class GraphPartitioner {
+    private static final int COARSEST_PER_PART = 30;
+    private static final double IMBALANCE = 1.05;
+    private static final int REFINE_PASSES = 4;
+
+    private final Random random;
+
+    public GraphPartitioner(long seed) {
+        this.random = new Random(seed);
+    }
+
+    // level of the multilevel hierarchy in CSR form:
+
+    private record Level(
+            int[] start,
+            int[] adj,
+            int[] adjWeight,
+            int[] weight,
+            int[] coarseOf
+    ) {
+        int size() {
+            return weight.length;
+        }
+    }
+
+    /**
+     * @return part index for every vertex of the graph
+     */
+    public int[] partition(Graph graph, int parts) {
+        if (parts < 1) {
+            throw new RuntimeException("expected positive parts count");
+        }
+        int N = graph.getNodesCount();
+        if (parts == 1) {
+            return new int[N];
+        }
+
+        List<Level> levels = new ArrayList<>();
+        levels.add(fromGraph(graph));
+        while (levels.get(levels.size() - 1).size() > COARSEST_PER_PART * parts) {
+            Level coarse = coarsen(levels.get(levels.size() - 1));
+            if (coarse.size() > 0.95 * levels.get(levels.size() - 1).size()) {
+                break;
+            }
+            levels.add(coarse);
+        }
+
+        Level coarsest = levels.get(levels.size() - 1);
+        int[] part = grow(coarsest, parts, N);
+        refine(coarsest, part, parts, N);
+
+        for (int lvl = levels.size() - 2; lvl >= 0; lvl--) {
+            Level fine = levels.get(lvl);
+            int[] finePart = new int[fine.size()];
+            for (int v = 0; v < fine.size(); v++) {
+                finePart[v] = part[fine.coarseOf[v]];
+            }
+            part = finePart;
+            refine(fine, part, parts, N);
+        }
+
+        return part;
+    }
+
+    public static int cutSize(Graph graph, int[] part) {
+        int cut = 0;
+        for (int num = 0; num < graph.getEdges().size(); num += 2) {
+            Pair<Integer, Integer> edge = graph.getEdges().get(num);
+            if (part[edge.first] != part[edge.second]) {
+                cut++;
+            }
+        }
+        return cut;
+    }
+
+    // private methods:
+
+    private static Level fromGraph(Graph graph) {
+        int N = graph.getNodesCount();
+        int[] start = new int[N + 1];
+        for (int v = 0; v < N; v++) {
+            start[v + 1] = start[v] + graph.edgesOf(v).size();
+        }
+        int[] adj = new int[start[N]];
+        int[] adjWeight = new int[start[N]];
+        for (int v = 0; v < N; v++) {
+            int ind = start[v];
+            for (Pair<Integer, Long> pair : graph.edgesOf(v)) {
+                adj[ind] = pair.first;
+                adjWeight[ind] = 1;
+                ind++;
+            }
+        }
+        int[] weight = new int[N];
+        Arrays.fill(weight, 1);
+        return new Level(start, adj, adjWeight, weight, new int[N]);
+    }
+
+    private Level coarsen(Level fine) {
+        int n = fine.size();
+        int[] order = shuffled(n);
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+
+        // heavy edge matching in random order
+
+        for (int v : order) {
+            if (match[v] != -1) continue;
+            int best = -1;
+            int bestWeight = -1;
+            for (int i = fine.start[v]; i < fine.start[v + 1]; i++) {
+                int u = fine.adj[i];
+                if (u != v && match[u] == -1 && fine.adjWeight[i] > bestWeight) {
+                    best = u;
+                    bestWeight = fine.adjWeight[i];
+                }
+            }
+            if (best == -1) {
+                match[v] = v;
+            } else {
+                match[v] = best;
+                match[best] = v;
+            }
+        }
+
+        int coarseCount = 0;
+        for (int v = 0; v < n; v++) {
+            if (v <= match[v]) {
+                fine.coarseOf[v] = coarseCount;
+                fine.coarseOf[match[v]] = coarseCount;
+                coarseCount++;
+            }
+        }
+
+        int[] weight = new int[coarseCount];
+        List<Map<Integer, Integer>> adjacency = new ArrayList<>(coarseCount);
+        for (int c = 0; c < coarseCount; c++) {
+            adjacency.add(new HashMap<>());
+        }
+        for (int v = 0; v < n; v++) {
+            int cv = fine.coarseOf[v];
+            weight[cv] += fine.weight[v];
+            for (int i = fine.start[v]; i < fine.start[v + 1]; i++) {
+                int cu = fine.coarseOf[fine.adj[i]];
+                if (cu != cv) {
+                    adjacency.get(cv).merge(cu, fine.adjWeight[i], Integer::sum);
+                }
+            }
+        }
+
+        int[] start = new int[coarseCount + 1];
+        for (int c = 0; c < coarseCount; c++) {
+            start[c + 1] = start[c] + adjacency.get(c).size();
+        }
+        int[] adj = new int[start[coarseCount]];
+        int[] adjWeight = new int[start[coarseCount]];
+        for (int c = 0; c < coarseCount; c++) {
+            int ind = start[c];
+            for (Map.Entry<Integer, Integer> entry : new TreeMap<>(adjacency.get(c)).entrySet()) {
+                adj[ind] = entry.getKey();
+                adjWeight[ind] = entry.getValue();
+                ind++;
+            }
+        }
+
+        return new Level(start, adj, adjWeight, weight, new int[coarseCount]);
+    }
+
+    private int[] grow(Level level, int parts, int totalWeight) {
+        int n = level.size();
+        int[] part = new int[n];
+        Arrays.fill(part, -1);
+        int target = (totalWeight + parts - 1) / parts;
+        int[] order = shuffled(n);
+        int orderInd = 0;
+
+        for (int p = 0; p < parts - 1; p++) {
+            int partWeight = 0;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            while (partWeight < target) {
+                if (queue.isEmpty()) {
+                    while (orderInd < n && part[order[orderInd]] != -1) orderInd++;
+                    if (orderInd == n) break;
+                    int seed = order[orderInd];
+                    part[seed] = p;
+                    partWeight += level.weight[seed];
+                    queue.add(seed);
+                    continue;
+                }
+                int v = queue.poll();
+                for (int i = level.start[v]; i < level.start[v + 1] && partWeight < target; i++) {
+                    int u = level.adj[i];
+                    if (part[u] == -1) {
+                        part[u] = p;
+                        partWeight += level.weight[u];
+                        queue.add(u);
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (part[v] == -1) part[v] = parts - 1;
+        }
+        return part;
+    }
+
+    private static void refine(Level level, int[] part, int parts, int totalWeight) {
+        int n = level.size();
+        long maxWeight = (long) Math.ceil(IMBALANCE * totalWeight / parts);
+        long[] partWeight = new long[parts];
+        for (int v = 0; v < n; v++) {
+            partWeight[part[v]] += level.weight[v];
+        }
+
+        int[] gainTo = new int[parts];
+        for (int pass = 0; pass < REFINE_PASSES; pass++) {
+            boolean moved = false;
+            for (int v = 0; v < n; v++) {
+                int from = part[v];
+                boolean boundary = false;
+                for (int i = level.start[v]; i < level.start[v + 1]; i++) {
+                    gainTo[part[level.adj[i]]] += level.adjWeight[i];
+                    if (part[level.adj[i]] != from) boundary = true;
+                }
+                if (boundary) {
+                    int best = from;
+                    int bestGain = 0;
+                    for (int p = 0; p < parts; p++) {
+                        if (p == from) continue;
+                        int gain = gainTo[p] - gainTo[from];
+                        boolean fits = partWeight[p] + level.weight[v] <= maxWeight;
+                        boolean balances = partWeight[from] > maxWeight && partWeight[p] < partWeight[from];
+                        if ((fits && gain > bestGain) || (balances && gain >= bestGain && best == from)) {
+                            best = p;
+                            bestGain = gain;
+                        }
+                    }
+                    if (best != from) {
+                        part[v] = best;
+                        partWeight[from] -= level.weight[v];
+                        partWeight[best] += level.weight[v];
+                        moved = true;
+                    }
+                }
+                for (int i = level.start[v]; i < level.start[v + 1]; i++) {
+                    gainTo[part[level.adj[i]]] = 0;
+                }
+                gainTo[from] = 0;
+            }
+            if (!moved) break;
+        }
+    }
+
+    private int[] shuffled(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,179 @@
+package io;
+
+import utils.DenseMatrix;
+import utils.Matrix;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Row-major binary matrix of doubles on disk, accessed by memory-mapped row blocks,
+ * only one block is held on the heap at a time.
+ * Layout: int N, int D, then N * D doubles, native byte order.
+ */
+public class MappedMatrix implements Closeable {
+    private static final int HEADER = 8;
+    private static final long BLOCK_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final int N;
+    private final int D;
+    private final boolean writable;
+
+    private MappedMatrix(FileChannel channel, int N, int D, boolean writable) {
+        this.channel = channel;
+        this.N = N;
+        this.D = D;
+        this.writable = writable;
+    }
+
+    public static MappedMatrix open(String f) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(f), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.nativeOrder());
+        channel.read(header, 0);
+        header.flip();
+        int N = header.getInt();
+        int D = header.getInt();
+        if (channel.size() != HEADER + 8L * N * D) {
+            channel.close();
+            throw new RuntimeException("expected file size of " + N + " x " + D + " matrix: " + f);
+        }
+        return new MappedMatrix(channel, N, D, false);
+    }
+
+    public static MappedMatrix create(String f, int N, int D) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(f),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeHeader(channel, N, D);
+        return new MappedMatrix(channel, N, D, true);
+    }
+
+    /**
+     * streams text matrix in {@link NewMatrixIO} format to binary file, one line on the heap at a time
+     */
+    public static MappedMatrix convert(
+            String text, String f, boolean withName,
+            Map<String, Integer> namingMap,
+            Map<Integer, String> revNamingMap
+    ) throws IOException {
+        Path path = Path.of(f);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        int N = 0;
+        int D = -1;
+        try (BufferedReader in = new BufferedReader(new FileReader(text, StandardCharsets.UTF_8));
+             FileChannel channel = FileChannel.open(path,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.nativeOrder());
+            channel.position(HEADER);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.split("\\s");
+                if (D == -1) {
+                    D = tokens.length - (withName ? 1 : 0);
+                } else if (tokens.length - (withName ? 1 : 0) != D) {
+                    throw new RuntimeException("expected " + D + " tokens in " + N + " row");
+                }
+
+                for (int i = 0; i < tokens.length; i++) {
+                    if (i == 0 && withName) {
+                        String name = tokens[0];
+                        if (namingMap.containsKey(name)) {
+                            throw new RuntimeException("expected unique name for any line, found: " + name);
+                        }
+                        namingMap.put(name, N);
+                        revNamingMap.put(N, name);
+                        continue;
+                    }
+                    if (buffer.remaining() < 8) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) channel.write(buffer);
+                        buffer.clear();
+                    }
+                    buffer.putDouble(Double.parseDouble(tokens[i]));
+                }
+                N++;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+
+            writeHeader(channel, N, Math.max(D, 0));
+        }
+        return open(f);
+    }
+
+    public int numRows() {
+        return N;
+    }
+
+    public int numCols() {
+        return D;
+    }
+
+    /**
+     * number of rows in one block of the default size
+     */
+    public int blockRows() {
+        return (int) Math.max(1, Math.min(N, BLOCK_BYTES / (8L * Math.max(D, 1))));
+    }
+
+    public DenseMatrix readRows(int from, int to) throws IOException {
+        double[] data = new double[Math.multiplyExact(to - from, D)];
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, offset(from), 8L * data.length);
+        map.order(ByteOrder.nativeOrder()).asDoubleBuffer().get(data);
+        return DenseMatrix.wrap(data, to - from, D, true);
+    }
+
+    public void writeRows(int from, DenseMatrix block) throws IOException {
+        if (!writable) {
+            throw new RuntimeException("expected writable matrix");
+        }
+        if (block.numCols() != D || from + block.numRows() > N) {
+            throw new RuntimeException("block does not fit the matrix");
+        }
+        double[] data = block.rowMajorData();
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, offset(from), 8L * data.length);
+        map.order(ByteOrder.nativeOrder()).asDoubleBuffer().put(data);
+        map.force();
+    }
+
+    /**
+     * whole matrix on the heap, only for small outputs
+     */
+    public Matrix toMatrix() throws IOException {
+        return new Matrix(readRows(0, N));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // private methods:
+
+    private long offset(int row) {
+        return HEADER + 8L * row * D;
+    }
+
+    private static void writeHeader(FileChannel channel, int N, int D) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.nativeOrder());
+        header.putInt(N).putInt(D);
+        header.flip();
+        while (header.hasRemaining()) channel.write(header, HEADER - header.remaining());
+        if ((long) N * D > 0 && channel.size() < HEADER + 8L * N * D) {
+            channel.write(ByteBuffer.allocate(1), HEADER + 8L * N * D - 1);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io;
 
+import utils.DenseMatrix;
 import utils.Matrix;
 
 import java.io.FileReader;
@@ -12,13 +13,26 @@ public class NewMatrixIO {
             String f, boolean withName,
             Map<String, Integer> namingMap,
             Map<Integer, String> revNamingMap
+    ) throws IOException {
+        return read(f, withName, namingMap, revNamingMap, false);
+    }
+
+    /**
+     * @param float32 store values as float, rows are narrowed while reading so that no double copy is kept
+     */
+    public static Matrix read(
+            String f, boolean withName,
+            Map<String, Integer> namingMap,
+            Map<Integer, String> revNamingMap,
+            boolean float32
     ) throws IOException {
         Scanner scanner = new Scanner(new FileReader(f, StandardCharsets.UTF_8));
 
         int D = -1;
         int lineNum = 0;
 
-        List<List<Double>> matrix = new ArrayList<>();
+        List<double[]> matrix = new ArrayList<>();
+        List<float[]> floatMatrix = new ArrayList<>();
 
         while (scanner.hasNextLine()) {
             String line = scanner.nextLine();
@@ -30,7 +44,7 @@ public class NewMatrixIO {
                 throw new RuntimeException("expected " + D + " tokens in " + lineNum + " row");
             }
 
-            List<Double> row = new ArrayList<>();
+            double[] row = new double[withName ? tokens.length - 1 : tokens.length];
             for (int i = 0; i < tokens.length; i++) {
                 if (i == 0 && withName) {
                     String name = tokens[0];
@@ -44,13 +58,34 @@ public class NewMatrixIO {
                     revNamingMap.put(lineNum, name);
                     continue;
                 }
-                row.add(Double.parseDouble(tokens[i]));
+                row[withName ? i - 1 : i] = Double.parseDouble(tokens[i]);
             }
 
-            matrix.add(row);
+            if (float32) {
+                float[] floatRow = new float[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    floatRow[i] = (float) row[i];
+                }
+                floatMatrix.add(floatRow);
+            } else {
+                matrix.add(row);
+            }
             lineNum++;
         }
 
-        return new Matrix(matrix);
+        if (lineNum == 0) {
+            throw new RuntimeException("expected non-empty matrix argument");
+        }
+
+        if (float32) {
+            int cols = floatMatrix.get(0).length;
+            float[] data = new float[Math.multiplyExact(lineNum, cols)];
+            for (int i = 0; i < lineNum; i++) {
+                System.arraycopy(floatMatrix.get(i), 0, data, i * cols, cols);
+            }
+            return new Matrix(DenseMatrix.wrap(data, lineNum, cols, true));
+        }
+
+        return new Matrix(matrix.toArray(new double[0][]));
     }
 }
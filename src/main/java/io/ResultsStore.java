@@ -0,0 +1,416 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Append-only table of evaluation results, one tab-separated {@link Record} per line after a header line.
+ * Records of one JVM go through a single writer thread, every batch is appended under an exclusive file lock,
+ * so parallel runs and several processes can share one file. {@link #exportColumns} writes one column per file
+ * (numeric columns as .npy) for analysis. A file with other columns (written by an older version) is moved
+ * aside to "{name}.{millis}.old" when the store is opened.
+ */
+public class ResultsStore implements Closeable {
+
+    /**
+     * @param session   {@link #SESSION} of the JVM that wrote the record
+     * @param title     run title, several runs may evaluate one dataset
+     * @param method    "nc_cluster" (every NetClust cluster), "nc" (best NetClust cluster of the base),
+     *                  "x" / "y" (best side of the found solution), "ica" (every FastICA component)
+     * @param base      NetClust base: "0.25", "0.4", "0.5", "nobase" or "" if not applicable
+     * @param component cluster or component number, -1 if not applicable
+     * @param f1scoreLow bounds of the bootstrap confidence intervals, NaN if not computed
+     * @param timeMs    solving time of the run, -1 if unknown
+     */
+    public record Record(
+            String session,
+            String title,
+            String dataset,
+            int module,
+            String method,
+            String base,
+            int component,
+            double precision,
+            double recall,
+            double f1score,
+            double f1scoreLow,
+            double f1scoreHigh,
+            double predicted,
+            double aucRoc,
+            double aucRocLow,
+            double aucRocHigh,
+            double icaAucRoc,
+            long timeMs
+    ) {
+        // nothing
+    }
+
+    private record Column(String name, String type, Function<Record, Object> getter) {
+        // nothing
+    }
+
+    /**
+     * flush marker, gets the failure of the writes since the previous marker
+     */
+    private static class Marker {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Exception failure;
+    }
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("session", "str", Record::session),
+            new Column("title", "str", Record::title),
+            new Column("dataset", "str", Record::dataset),
+            new Column("module", "<i8", Record::module),
+            new Column("method", "str", Record::method),
+            new Column("base", "str", Record::base),
+            new Column("component", "<i8", Record::component),
+            new Column("precision", "<f8", Record::precision),
+            new Column("recall", "<f8", Record::recall),
+            new Column("f1score", "<f8", Record::f1score),
+            new Column("f1score_low", "<f8", Record::f1scoreLow),
+            new Column("f1score_high", "<f8", Record::f1scoreHigh),
+            new Column("predicted", "<f8", Record::predicted),
+            new Column("auc_roc", "<f8", Record::aucRoc),
+            new Column("auc_roc_low", "<f8", Record::aucRocLow),
+            new Column("auc_roc_high", "<f8", Record::aucRocHigh),
+            new Column("ica_auc_roc", "<f8", Record::icaAucRoc),
+            new Column("time_ms", "<i8", Record::timeMs)
+    );
+
+    /**
+     * start time and process id of this JVM, marks its records
+     */
+    public static final String SESSION = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime())
+            + "_" + ProcessHandle.current().pid();
+
+    private static final Map<Path, ResultsStore> OPENED = new HashMap<>();
+
+    private final Path file;
+    /**
+     * records and flush markers in order of arrival
+     */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    /**
+     * FileLock is held per JVM, overlapping locks of the reader and the writer thread would throw
+     */
+    private final Object fileMutex = new Object();
+
+    private ResultsStore(Path file) {
+        this.file = file;
+        rotateForeign();
+        this.writer = new Thread(this::writeLoop, "results-store");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * @return the store of this file shared by the whole JVM
+     */
+    public static ResultsStore open(String file) {
+        Path path = Path.of(file).toAbsolutePath().normalize();
+        synchronized (OPENED) {
+            return OPENED.computeIfAbsent(path, ResultsStore::new);
+        }
+    }
+
+    /**
+     * queues the record, it is written asynchronously, see {@link #flush}
+     */
+    public void append(Record record) {
+        for (Column column : COLUMNS) {
+            if (column.type.equals("str") && ((String) column.getter.apply(record)).matches("(?s).*[\t\n\r].*")) {
+                throw new RuntimeException("unexpected tab or line break in column " + column.name);
+            }
+        }
+        queue.add(record);
+    }
+
+    /**
+     * waits until every record appended before is written
+     *
+     * @throws RuntimeException if writing records failed since the previous flush, the failure is reported once
+     */
+    public void flush() {
+        Marker marker = new Marker();
+        queue.add(marker);
+        try {
+            marker.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (marker.failure != null) {
+            throw new RuntimeException(marker.failure);
+        }
+    }
+
+    /**
+     * @return all records of the file, including records of other processes
+     */
+    public List<Record> read() {
+        flush();
+        List<Record> res = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return res;
+        }
+        synchronized (fileMutex) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) break;
+                    }
+                    String[] lines = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\n");
+                    if (!lines[0].isEmpty()) {
+                        checkHeader(lines[0]);
+                    }
+                    for (int i = 1; i < lines.length; i++) {
+                        if (!lines[i].isEmpty()) {
+                            res.add(parse(lines[i]));
+                        }
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * writes every column into folder: numeric ones as little-endian .npy arrays, strings as .txt, one value per line
+     */
+    public void exportColumns(String folder) {
+        List<Record> records = read();
+        try {
+            Files.createDirectories(Path.of(folder));
+            for (Column column : COLUMNS) {
+                if (column.type.equals("str")) {
+                    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(folder, column.name + ".txt")))) {
+                        for (Record record : records) {
+                            out.println(column.getter.apply(record));
+                        }
+                    }
+                } else {
+                    writeNpy(Path.of(folder, column.name + ".npy"), column, records);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        synchronized (OPENED) {
+            OPENED.remove(file);
+        }
+        writer.interrupt();
+    }
+
+    // private methods:
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        // failure of a batch without flush markers, reported to the next marker:
+        Exception unreported = null;
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            StringBuilder lines = new StringBuilder();
+            for (Object item : batch) {
+                if (item instanceof Record record) {
+                    lines.append(format(record)).append('\n');
+                }
+            }
+            if (lines.length() != 0) {
+                try {
+                    write(lines.toString());
+                } catch (Exception e) {
+                    if (unreported != null) {
+                        e.addSuppressed(unreported);
+                    }
+                    unreported = e;
+                }
+            }
+            for (Object item : batch) {
+                if (item instanceof Marker marker) {
+                    marker.failure = unreported;
+                    unreported = null;
+                    marker.done.countDown();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(String lines) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        synchronized (fileMutex) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                FileLock lock = channel.lock();
+                try {
+                    StringBuilder text = new StringBuilder();
+                    if (channel.size() == 0) {
+                        text.append(header()).append('\n');
+                    } else {
+                        checkHeader(firstLine(channel));
+                    }
+                    channel.position(channel.size());
+                    text.append(lines);
+                    ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * moves the file aside if its header doesn't match {@link #COLUMNS}
+     */
+    private void rotateForeign() {
+        try {
+            if (!Files.exists(file) || Files.size(file) == 0) {
+                return;
+            }
+            String found;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    found = firstLine(channel);
+                } finally {
+                    lock.release();
+                }
+            }
+            if (!found.equals(header())) {
+                Path old = file.resolveSibling(file.getFileName() + "." + System.currentTimeMillis() + ".old");
+                Files.move(file, old);
+                System.err.println("results file " + file + " has other columns, moved to " + old);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void checkHeader(String found) {
+        if (!found.equals(header())) {
+            throw new RuntimeException("unexpected header of results file " + file + ": " + found + ", expected: " + header());
+        }
+    }
+
+    private static String header() {
+        StringJoiner header = new StringJoiner("\t");
+        COLUMNS.forEach(column -> header.add(column.name));
+        return header.toString();
+    }
+
+    /**
+     * @return first line of the file without the line break, reads from the start of the channel
+     */
+    private static String firstLine(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 1 << 16));
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) break;
+        }
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        int end = text.indexOf('\n');
+        return (end == -1) ? text : text.substring(0, end);
+    }
+
+    private static String format(Record record) {
+        StringJoiner line = new StringJoiner("\t");
+        for (Column column : COLUMNS) {
+            line.add(String.valueOf(column.getter.apply(record)));
+        }
+        return line.toString();
+    }
+
+    private static Record parse(String line) {
+        String[] tokens = line.split("\t", -1);
+        if (tokens.length != COLUMNS.size()) {
+            throw new RuntimeException("unexpected count of columns in results line: " + line);
+        }
+        return new Record(
+                tokens[0],
+                tokens[1],
+                tokens[2],
+                Integer.parseInt(tokens[3]),
+                tokens[4],
+                tokens[5],
+                Integer.parseInt(tokens[6]),
+                Double.parseDouble(tokens[7]),
+                Double.parseDouble(tokens[8]),
+                Double.parseDouble(tokens[9]),
+                Double.parseDouble(tokens[10]),
+                Double.parseDouble(tokens[11]),
+                Double.parseDouble(tokens[12]),
+                Double.parseDouble(tokens[13]),
+                Double.parseDouble(tokens[14]),
+                Double.parseDouble(tokens[15]),
+                Double.parseDouble(tokens[16]),
+                Long.parseLong(tokens[17])
+        );
+    }
+
+    /**
+     * NPY format version 1.0: magic, header length, python dict header padded to 64 bytes, raw data
+     */
+    private static void writeNpy(Path f, Column column, List<Record> records) throws IOException {
+        String dict = "{'descr': '" + column.type + "', 'fortran_order': False, 'shape': (" + records.size() + ",), }";
+        int padding = 64 - (10 + dict.length() + 1) % 64;
+        String header = dict + " ".repeat(padding % 64) + "\n";
+
+        ByteBuffer buffer = ByteBuffer.allocate(10 + header.length() + 8 * records.size()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[]{(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0});
+        buffer.putShort((short) header.length());
+        buffer.put(header.getBytes(StandardCharsets.US_ASCII));
+        for (Record record : records) {
+            Object val = column.getter.apply(record);
+            if (column.type.equals("<f8")) {
+                buffer.putDouble((Double) val);
+            } else {
+                buffer.putLong(((Number) val).longValue());
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(f)) {
+            Channels.newChannel(out).write(buffer.flip());
+        }
+    }
+}
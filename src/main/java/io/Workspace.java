@@ -0,0 +1,26 @@
+package io;
+
+import java.io.File;
+
+/**
+ * Folders of one run: input with the dataset files, answers for the solution dumps, logs for solver and run logs.
+ * Parallel runs must use different answers and logs folders, see {@link #create}.
+ */
+public record Workspace(String input, String answers, String logs) {
+    public static final Workspace DEFAULT = new Workspace("./input/", "./answers/", "./logs/");
+
+    /**
+     * @return workspace with root/name/answers/ and root/name/logs/, folders are created
+     */
+    public static Workspace create(String input, String root, String name) {
+        String folder = root + (root.endsWith("/") ? "" : "/") + name + "/";
+        Workspace res = new Workspace(input, folder + "answers/", folder + "logs/");
+        for (String dir : new String[]{res.answers, res.logs}) {
+            File file = new File(dir);
+            if (!file.isDirectory() && !file.mkdirs()) {
+                throw new RuntimeException("can't create folder " + dir);
+            }
+        }
+        return res;
+    }
+}
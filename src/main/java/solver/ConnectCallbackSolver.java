@@ -1,7 +1,10 @@
 package solver;
 
+import algo.CutSeparator;
 import algo.MST;
+import graph.EdgeSelection;
 import graph.Graph;
+import io.Workspace;
 import ilog.concert.*;
 import ilog.cplex.*;
 import utils.Matrix;
@@ -15,6 +18,7 @@ import java.util.*;
 public class ConnectCallbackSolver implements MySolver {
     @Override
     public void close() {
+        separator.close();
         log.close();
     }
 
@@ -60,14 +64,28 @@ public class ConnectCallbackSolver implements MySolver {
         }
     }
 
+    public enum ExtractionMode {
+        /**
+         * project the found direction a out of the whitened matrix and keep next a orthogonal to it
+         */
+        DEFLATE,
+        /**
+         * zero the rows of the found module vertices, so they don't contribute to next p
+         */
+        EXCLUDE
+    }
+
     // variables:
 
+    private static final int MAX_CUTS = 50;
+
     private final double INF;
     private final double STEP;
 
     private final PrintWriter log;
+    private final Workspace workspace;
 
-    private final Matrix matrix;
+    private Matrix matrix;
     private final int D;
     private final int N;
 
@@ -76,17 +94,46 @@ public class ConnectCallbackSolver implements MySolver {
 
     private final Variables v;
 
+    private ModelBounds bounds;
+
+    private final IloRange[] pRows;
+
+    // big-M rows, updated with the bounds:
+    private final IloRange[] fRows;
+    private final IloRange[] gRows;
+    private final IloRange[] xRows;
+    private final IloRange[] yRows;
+
+    private final CutSeparator separator;
+
     private final IloCplex cplex;
 
+    private final SolutionPublisher publisher = new SolutionPublisher();
+
     private int cnt_ans = 0;
 
     // constructor:
 
     public ConnectCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP) throws IloException, IOException {
+        this(matrix, graph, TIME_LIMIT, INF, STEP, Workspace.DEFAULT);
+    }
+
+    /**
+     * @param workspace folders for the log and the heuristic solution dumps
+     */
+    public ConnectCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP, Workspace workspace) throws IloException, IOException {
+        this(matrix, graph, TIME_LIMIT, INF, STEP, workspace, 0);
+    }
+
+    /**
+     * @param threads CPLEX and cut separation threads, 0 for all cores; parallel runs should share the cores
+     */
+    public ConnectCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP, Workspace workspace, int threads) throws IloException, IOException {
         this.INF = INF;
         this.STEP = STEP;
+        this.workspace = workspace;
 
-        this.log = new PrintWriter("./logs/connect_callback_solver.txt", StandardCharsets.UTF_8);
+        this.log = new PrintWriter(workspace.logs() + "connect_callback_solver.txt", StandardCharsets.UTF_8);
 
         this.matrix = matrix;
         this.N = matrix.numRows();
@@ -100,10 +147,21 @@ public class ConnectCallbackSolver implements MySolver {
         }
 
         this.v = new Variables(D, N, E);
+        this.pRows = new IloRange[N];
+        this.fRows = new IloRange[N];
+        this.gRows = new IloRange[N];
+        this.xRows = new IloRange[E];
+        this.yRows = new IloRange[E];
+
+        this.bounds = ModelBounds.compute(matrix, graph, INF, STEP);
+        log.println(bounds.report(INF));
+
+        this.separator = new CutSeparator(graph, (threads > 0) ? threads : Runtime.getRuntime().availableProcessors());
 
         this.cplex = new IloCplex();
         this.cplex.setParam(IloCplex.Param.OptimalityTarget, IloCplex.OptimalityTarget.OptimalGlobal);
         this.cplex.setParam(IloCplex.Param.TimeLimit, TIME_LIMIT);
+        this.cplex.setParam(IloCplex.Param.Threads, threads);
 
         addVariables();
         addObjective();
@@ -117,19 +175,19 @@ public class ConnectCallbackSolver implements MySolver {
 
     private void addVariables() throws IloException {
         for (int i = 0; i < D; i++) {
-            v.a[i] = (cplex.numVar(-INF, INF, IloNumVarType.Float, varNameOf("a", i)));
+            v.a[i] = (cplex.numVar(-bounds.aBound(), bounds.aBound(), IloNumVarType.Float, varNameOf("a", i)));
         }
         for (int i = 0; i < N; i++) {
-            v.f[i] = (cplex.numVar(0, INF, IloNumVarType.Float, varNameOf("f", i)));
-            v.g[i] = (cplex.numVar(0, INF, IloNumVarType.Float, varNameOf("g", i)));
+            v.f[i] = (cplex.numVar(0, bounds.pBound()[i], IloNumVarType.Float, varNameOf("f", i)));
+            v.g[i] = (cplex.numVar(0, bounds.pBound()[i], IloNumVarType.Float, varNameOf("g", i)));
             v.alpha[i] = (cplex.numVar(0, 1, IloNumVarType.Int, varNameOf("alpha", i)));
             v.beta[i] = (cplex.numVar(0, 1, IloNumVarType.Int, varNameOf("beta", i)));
         }
         for (int i = 0; i < N; i++) {
             v.r[i] = (cplex.numVar(0, 1, IloNumVarType.Int, varNameOf("r", i)));
-            v.q[i] = (cplex.numVar(0, INF, IloNumVarType.Float, varNameOf("q", i)));
+            v.q[i] = (cplex.numVar(0, bounds.qBound()[i], IloNumVarType.Float, varNameOf("q", i)));
             v.s[i] = (cplex.numVar(0, 1, IloNumVarType.Int, varNameOf("s", i)));
-            v.t[i] = (cplex.numVar(0, INF, IloNumVarType.Float, varNameOf("t", i)));
+            v.t[i] = (cplex.numVar(0, bounds.qBound()[i], IloNumVarType.Float, varNameOf("t", i)));
         }
         for (int i = 0; i < E; i++) {
             v.x[i] = (cplex.numVar(0, 1, IloNumVarType.Int, varNameOf("x", i)));
@@ -186,7 +244,7 @@ public class ConnectCallbackSolver implements MySolver {
 
     private void addConstraint() throws IloException {
         for (int i = 0; i < N; i++) {
-            cplex.addEq(
+            pRows[i] = cplex.addEq(
                     cplex.scalProd(matrix.getRow(i), v.a),
                     cplex.diff(v.f[i], v.g[i])
             );
@@ -198,9 +256,16 @@ public class ConnectCallbackSolver implements MySolver {
         }
         cplex.addEq(cplex.sum(l1normP), N);
 
+        // f_i - M alpha_i <= 0, g_i - M beta_i <= 0:
         for (int i = 0; i < N; i++) {
-            cplex.addLe(v.f[i], cplex.prod(v.alpha[i], INF));
-            cplex.addLe(v.g[i], cplex.prod(v.beta[i], INF));
+            IloLinearNumExpr exprF = cplex.linearNumExpr();
+            exprF.addTerm(1, v.f[i]);
+            exprF.addTerm(-bounds.pBound()[i], v.alpha[i]);
+            fRows[i] = cplex.addLe(exprF, 0);
+            IloLinearNumExpr exprG = cplex.linearNumExpr();
+            exprG.addTerm(1, v.g[i]);
+            exprG.addTerm(-bounds.pBound()[i], v.beta[i]);
+            gRows[i] = cplex.addLe(exprG, 0);
             cplex.addEq(cplex.sum(v.alpha[i], v.beta[i]), 1);
         }
     }
@@ -253,21 +318,27 @@ public class ConnectCallbackSolver implements MySolver {
             );
         }
 
+        // M + q_u - q_v >= M x_uv + STEP as q_u - q_v - M x_uv >= STEP - M, the same for t and y:
         for (int num = 0; num < E; num++) {
             Pair<Integer, Integer> edge = graph.getEdges().get(num);
-            cplex.addGe(
-                    cplex.sum(INF, cplex.diff(v.q[edge.first], v.q[edge.second])),
-                    cplex.sum(cplex.prod(INF, v.x[num]), STEP)
-            );
-            cplex.addGe(
-                    cplex.sum(INF, cplex.diff(v.t[edge.first], v.t[edge.second])),
-                    cplex.sum(cplex.prod(INF, v.y[num]), STEP)
-            );
+            double M = bounds.edgeM()[num];
+            IloLinearNumExpr exprX = cplex.linearNumExpr();
+            exprX.addTerm(1, v.q[edge.first]);
+            exprX.addTerm(-1, v.q[edge.second]);
+            exprX.addTerm(-M, v.x[num]);
+            xRows[num] = cplex.addGe(exprX, STEP - M);
+            IloLinearNumExpr exprY = cplex.linearNumExpr();
+            exprY.addTerm(1, v.t[edge.first]);
+            exprY.addTerm(-1, v.t[edge.second]);
+            exprY.addTerm(-M, v.y[num]);
+            yRows[num] = cplex.addGe(exprY, STEP - M);
         }
     }
 
     private void tuning() throws IloException {
         cplex.use(new ICACallback());
+        cplex.use(new ConnectCutCallback());
+        cplex.use(new PublishCallback());
     }
 
     // callback:
@@ -285,6 +356,8 @@ public class ConnectCallbackSolver implements MySolver {
         public final double[] s;
         public final double[] t;
         public final double[] y;
+        public EdgeSelection xTree;
+        public EdgeSelection yTree;
 
         private RawSolution(
                 double[] a,
@@ -364,9 +437,9 @@ public class ConnectCallbackSolver implements MySolver {
 //                y[i] = y[i] + t[edge.first] + t[edge.second];
 //            }
 
-            MST.solve(graph, x, q, r, STEP);
-
-            MST.solve(graph, y, t, s, STEP);
+            Pair<EdgeSelection, EdgeSelection> trees = MST.solveBothSides(graph, x, q, r, graph, y, t, s, STEP);
+            xTree = trees.first;
+            yTree = trees.second;
 
             return true;
         }
@@ -395,10 +468,10 @@ public class ConnectCallbackSolver implements MySolver {
                     "\n| beta = " + Arrays.toString(beta) +
                     "\n| r = " + Arrays.toString(r) +
                     "\n| q = " + Arrays.toString(q) +
-                    "\n| x = " + Arrays.toString(x) +
+                    "\n| x = " + ((xTree != null) ? xTree : Arrays.toString(x)) +
                     "\n| s = " + Arrays.toString(s) +
                     "\n| t = " + Arrays.toString(t) +
-                    "\n| y = " + Arrays.toString(y) +
+                    "\n| y = " + ((yTree != null) ? yTree : Arrays.toString(y)) +
                     "\n}";
         }
     }
@@ -407,6 +480,11 @@ public class ConnectCallbackSolver implements MySolver {
         @Override
         protected void main() throws IloException {
 
+            if (publisher.shouldStop()) {
+                abort();
+                return;
+            }
+
             RawSolution sol = new RawSolution(
                     this.getValues((v.a)),
                     this.getValues((v.f)),
@@ -437,25 +515,21 @@ public class ConnectCallbackSolver implements MySolver {
                 log.println();
 
                 try {
-                    try (PrintWriter out_q = new PrintWriter("./answers/q.txt")) {
+                    try (PrintWriter out_q = new PrintWriter(workspace.answers() + "q.txt")) {
                         for (int i = 0; i < sol.q.length; i++) {
                             out_q.println(sol.q[i]);
                         }
                     }
-                    try (PrintWriter out_x = new PrintWriter("./answers/x.txt")) {
-                        for (int i = 0; i < sol.x.length; i++) {
-                            out_x.println(sol.x[i]);
-                        }
+                    try (PrintWriter out_x = new PrintWriter(workspace.answers() + "x.txt")) {
+                        sol.xTree.write(out_x);
                     }
-                    try (PrintWriter out_t = new PrintWriter("./answers/t.txt")) {
+                    try (PrintWriter out_t = new PrintWriter(workspace.answers() + "t.txt")) {
                         for (int i = 0; i < sol.t.length; i++) {
                             out_t.println(sol.t[i]);
                         }
                     }
-                    try (PrintWriter out_y = new PrintWriter("./answers/y.txt")) {
-                        for (int i = 0; i < sol.y.length; i++) {
-                            out_y.println(sol.y[i]);
-                        }
+                    try (PrintWriter out_y = new PrintWriter(workspace.answers() + "y.txt")) {
+                        sol.yTree.write(out_y);
                     }
                     //DrawUtils.newDraw("./answers/", "tmp_ans" + cnt_ans++, graph);
                 } catch (Exception e) {
@@ -471,10 +545,11 @@ public class ConnectCallbackSolver implements MySolver {
                 for (double z : sol.beta) vals[ind_var++] = z;
                 for (double z : sol.r) vals[ind_var++] = z;
                 for (double z : sol.q) vals[ind_var++] = z;
-                for (double z : sol.x) vals[ind_var++] = z;
+                sol.xTree.fillDense(vals, ind_var);
+                ind_var += E;
                 for (double z : sol.s) vals[ind_var++] = z;
                 for (double z : sol.t) vals[ind_var++] = z;
-                for (double z : sol.y) vals[ind_var++] = z;
+                sol.yTree.fillDense(vals, ind_var);
 
                 if (calcObj >= getIncumbentObjValue()) {
                     //System.out.println("found new solution: " + calcObj);
@@ -486,12 +561,101 @@ public class ConnectCallbackSolver implements MySolver {
     }
 
 
+    private class PublishCallback extends IloCplex.IncumbentCallback {
+        @Override
+        protected void main() throws IloException {
+            publisher.publish(getObjValue(), getValues(v.q), getValues(v.t));
+            if (publisher.shouldStop()) {
+                abort();
+            }
+        }
+    }
+
+    private class ConnectCutCallback extends IloCplex.UserCutCallback {
+        @Override
+        protected void main() throws IloException {
+            addCuts(v.r, v.x);
+            addCuts(v.s, v.y);
+        }
+
+        private void addCuts(IloNumVar[] root, IloNumVar[] edges) throws IloException {
+            List<CutSeparator.Cut> cuts = separator.separate(
+                    null,
+                    this.getValues(root),
+                    this.getValues(edges),
+                    MAX_CUTS
+            );
+
+            for (CutSeparator.Cut cut : cuts) {
+                IloLinearNumExpr expr = cplex.linearNumExpr();
+                for (int num : cut.inEdges()) {
+                    expr.addTerm(1, edges[num]);
+                }
+                for (int vertex : cut.vertices()) {
+                    expr.addTerm(1, root[vertex]);
+                }
+                add(cplex.ge(expr, cut.demand()));
+            }
+
+            if (!cuts.isEmpty()) {
+                log.println("cuts added: " + cuts.size() + ", max violation: " + cuts.get(0).violation());
+            }
+        }
+    }
+
+
     // public methods:
 
     public boolean solve() throws IloException {
+        publisher.start();
         return cplex.solve();
     }
 
+    @Override
+    public void addListener(SolutionListener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void stopOnPlateau(long windowMillis, double gap) {
+        publisher.stopOnPlateau(windowMillis, gap);
+    }
+
+    @Override
+    public RunStatistics getStatistics() {
+        return publisher.getStatistics();
+    }
+
+    @Override
+    public ModuleSolution getSolution() throws IloException {
+        return new ModuleSolution(
+                cplex.getValues(v.a),
+                cplex.getValues(v.q),
+                EdgeSelection.fromValues(cplex.getValues(v.x)),
+                cplex.getValues(v.t),
+                EdgeSelection.fromValues(cplex.getValues(v.y)),
+                cplex.getObjValue()
+        );
+    }
+
+    /**
+     * extracts K modules one by one, the Concert model is built once and only its coefficients are updated
+     */
+    public List<ModuleSolution> solveModules(int K, ExtractionMode mode) throws IloException {
+        List<ModuleSolution> modules = new ArrayList<>();
+        for (int k = 0; k < K; k++) {
+            if (k > 0) {
+                nextModule(modules.get(k - 1), mode);
+            }
+            if (!solve()) {
+                break;
+            }
+            modules.add(getSolution());
+            log.println("module " + k + " found, obj = " + cplex.getObjValue());
+        }
+        return modules;
+    }
+
     public void writeVarsToFiles(PrintWriter out_q, PrintWriter out_x, PrintWriter out_t, PrintWriter out_y) throws IloException {
 //        System.out.println("obj = " + cplex.getObjValue());
 //        for (int i = 0; i < D; i++) {
@@ -501,14 +665,83 @@ public class ConnectCallbackSolver implements MySolver {
         for (int i = 0; i < v.q.length; i++) {
             out_q.println(cplex.getValue(v.q[i]));
         }
-        for (int i = 0; i < v.x.length; i++) {
-            out_x.println(cplex.getValue(v.x[i]));
-        }
+        EdgeSelection.fromValues(cplex.getValues(v.x)).write(out_x);
         for (int i = 0; i < v.t.length; i++) {
             out_t.println(cplex.getValue(v.t[i]));
         }
-        for (int i = 0; i < v.y.length; i++) {
-            out_y.println(cplex.getValue(v.y[i]));
+        EdgeSelection.fromValues(cplex.getValues(v.y)).write(out_y);
+    }
+
+    // private methods:
+
+    private void nextModule(ModuleSolution prev, ExtractionMode mode) throws IloException {
+        double[][] rows = new double[N][];
+        for (int i = 0; i < N; i++) {
+            rows[i] = matrix.getRow(i);
+        }
+
+        if (mode == ExtractionMode.DEFLATE) {
+            double norm = Matrix.scalProd(prev.a(), prev.a());
+            if (norm < 1e-12) {
+                throw new RuntimeException("unexpected zero direction for deflation");
+            }
+            for (int i = 0; i < N; i++) {
+                double p = Matrix.scalProd(rows[i], prev.a());
+                for (int j = 0; j < D; j++) {
+                    rows[i][j] -= p * prev.a()[j] / norm;
+                }
+                cplex.setLinearCoefs(pRows[i], rows[i], v.a);
+            }
+            cplex.addEq(cplex.scalProd(prev.a(), v.a), 0);
+        } else if (mode == ExtractionMode.EXCLUDE) {
+            int excluded = 0;
+            for (int i = 0; i < N; i++) {
+                if (Math.max(prev.q()[i], prev.t()[i]) > SolutionPublisher.MODULE_LEVEL) {
+                    Arrays.fill(rows[i], 0);
+                    cplex.setLinearCoefs(pRows[i], rows[i], v.a);
+                    excluded++;
+                }
+            }
+            log.println("excluded vertices: " + excluded);
+        } else {
+            throw new RuntimeException("unsupported extraction mode");
+        }
+
+        matrix = new Matrix(rows);
+
+        // deflation keeps ||M a|| for a orthogonal to prev.a, so the old bounds stay valid,
+        // zero rows lower ||M a||_1 and ||p||_1 = N may need a larger a:
+        if (mode == ExtractionMode.EXCLUDE) {
+            updateBounds();
+        }
+    }
+
+    /**
+     * recomputes {@link ModelBounds} for the current matrix, updates variable bounds and big-M coefficients in place
+     */
+    private void updateBounds() throws IloException {
+        bounds = ModelBounds.compute(matrix, graph, INF, STEP);
+        log.println(bounds.report(INF));
+
+        for (IloNumVar a : v.a) {
+            a.setLB(-bounds.aBound());
+            a.setUB(bounds.aBound());
+        }
+        for (int i = 0; i < N; i++) {
+            double pBound = bounds.pBound()[i];
+            v.f[i].setUB(pBound);
+            v.g[i].setUB(pBound);
+            cplex.setLinearCoef(fRows[i], -pBound, v.alpha[i]);
+            cplex.setLinearCoef(gRows[i], -pBound, v.beta[i]);
+            v.q[i].setUB(bounds.qBound()[i]);
+            v.t[i].setUB(bounds.qBound()[i]);
+        }
+        for (int num = 0; num < E; num++) {
+            double M = bounds.edgeM()[num];
+            cplex.setLinearCoef(xRows[num], -M, v.x[num]);
+            cplex.setLinearCoef(yRows[num], -M, v.y[num]);
+            xRows[num].setLB(STEP - M);
+            yRows[num].setLB(STEP - M);
         }
     }
 
@@ -0,0 +1,18 @@
+package solver;
+
+/**
+ * new incumbent published by a solver
+ *
+ * @param elapsedMillis time since the start of current solve
+ * @param positiveSize  module size on the positive side (q)
+ * @param negativeSize  module size on the negative side (t)
+ */
+public record Incumbent(
+        int number,
+        double objective,
+        long elapsedMillis,
+        int positiveSize,
+        int negativeSize
+) {
+    // nothing
+}
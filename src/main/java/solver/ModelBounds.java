@@ -0,0 +1,108 @@
+package solver;
+
+import graph.Graph;
+import utils.Matrix;
+import utils.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Data-driven bounds for the connect model, used instead of the global INF:
+ * <p>
+ * ||p||_1 = N and ||M a||_2 >= sigma_min * ||a||_2, so |a_j| <= ||a||_2 <= N / sigma_min;
+ * <p>
+ * |p_i| = |M_i * a| <= min(N, ||M_i||_2 * N / sigma_min), it bounds f_i, g_i and the alpha/beta big-M;
+ * <p>
+ * after MST repair q_i <= max(p) + STEP * (component size - 1), the same for t_i;
+ * <p>
+ * the ordering constraint of edge (u, v) must be redundant for x = 0, so its big-M is q_v upper bound + STEP.
+ */
+public record ModelBounds(
+        double aBound,
+        double[] pBound,
+        double[] qBound,
+        double[] edgeM
+) {
+    public static ModelBounds compute(Matrix matrix, Graph graph, double INF, double STEP) {
+        int N = matrix.numRows();
+
+        double sigmaMin = Arrays.stream(matrix.singularValues()).min().orElse(0);
+        double aBound = (sigmaMin > 0) ? Math.min(INF, N / sigmaMin) : INF;
+
+        double[] pBound = new double[N];
+        double pMax = 0;
+        for (int i = 0; i < N; i++) {
+            double[] row = matrix.getRow(i);
+            double rowNorm = Math.sqrt(Matrix.scalProd(row, row));
+            pBound[i] = Math.min(INF, Math.min(N, rowNorm * aBound));
+            pMax = Math.max(pMax, pBound[i]);
+        }
+
+        int[] componentSize = componentSizes(graph);
+        double[] qBound = new double[N];
+        for (int i = 0; i < N; i++) {
+            qBound[i] = Math.min(INF, pMax + STEP * (componentSize[i] - 1));
+        }
+
+        int E = graph.getEdges().size();
+        double[] edgeM = new double[E];
+        for (int num = 0; num < E; num++) {
+            Pair<Integer, Integer> edge = graph.getEdges().get(num);
+            edgeM[num] = Math.min(INF, qBound[edge.second] + STEP);
+        }
+
+        return new ModelBounds(aBound, pBound, qBound, edgeM);
+    }
+
+    public String report(double INF) {
+        double before = INF * (2 * pBound.length + edgeM.length);
+        double after = 0;
+        for (double val : pBound) after += 2 * val;
+        for (double val : edgeM) after += val;
+
+        return "ModelBounds{" +
+                "\n| a: " + INF + " -> " + aBound +
+                "\n| f, g: " + INF + " -> max " + Arrays.stream(pBound).max().orElse(0) +
+                ", mean " + Arrays.stream(pBound).average().orElse(0) +
+                "\n| q, t: " + INF + " -> max " + Arrays.stream(qBound).max().orElse(0) +
+                "\n| edge big-M: " + INF + " -> max " + Arrays.stream(edgeM).max().orElse(0) +
+                ", mean " + Arrays.stream(edgeM).average().orElse(0) +
+                "\n| total big-M: " + before + " -> " + after +
+                String.format(" (%.2f%% of original)", 100 * after / before) +
+                "\n}";
+    }
+
+    // private static methods:
+
+    private static int[] componentSizes(Graph graph) {
+        int N = graph.getNodesCount();
+        int[] comp = new int[N];
+        Arrays.fill(comp, -1);
+        int[] queue = new int[N];
+        int[] sizes = new int[N];
+        int compCount = 0;
+        for (int start = 0; start < N; start++) {
+            if (comp[start] != -1) {
+                continue;
+            }
+            int qh = 0, qt = 0;
+            queue[qt++] = start;
+            comp[start] = compCount;
+            while (qh < qt) {
+                int v = queue[qh++];
+                for (Pair<Integer, Long> pair : graph.edgesOf(v)) {
+                    if (comp[pair.first] == -1) {
+                        comp[pair.first] = compCount;
+                        queue[qt++] = pair.first;
+                    }
+                }
+            }
+            sizes[compCount++] = qt;
+        }
+        int[] ans = new int[N];
+        for (int v = 0; v < N; v++) {
+            ans[v] = sizes[comp[v]];
+        }
+        return ans;
+    }
+}
@@ -0,0 +1,21 @@
+package solver;
+
+import graph.EdgeSelection;
+
+import java.io.PrintWriter;
+
+public record ModuleSolution(
+        double[] a,
+        double[] q,
+        EdgeSelection x,
+        double[] t,
+        EdgeSelection y,
+        double objective
+) {
+    public void writeToFiles(PrintWriter out_q, PrintWriter out_x, PrintWriter out_t, PrintWriter out_y) {
+        for (double val : q) out_q.println(val);
+        x.write(out_x);
+        for (double val : t) out_t.println(val);
+        y.write(out_y);
+    }
+}
@@ -7,4 +7,24 @@ public interface MySolver extends Closeable {
     boolean solve() throws Exception;
 
     void writeVarsToFiles(PrintWriter q, PrintWriter x, PrintWriter t, PrintWriter y) throws Exception;
+
+    /**
+     * @return solution found by the last solve
+     */
+    ModuleSolution getSolution() throws Exception;
+
+    /**
+     * listener is called for every new incumbent found during solve
+     */
+    void addListener(SolutionListener listener);
+
+    /**
+     * solve stops if the objective didn't improve by more than relative gap during the window
+     */
+    void stopOnPlateau(long windowMillis, double gap);
+
+    /**
+     * @return statistics of the last solve
+     */
+    RunStatistics getStatistics();
 }
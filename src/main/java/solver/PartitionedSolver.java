@@ -0,0 +1,304 @@
+package solver;
+
+import algo.MST;
+import graph.EdgeSelection;
+import graph.Graph;
+import graph.GraphPartitioner;
+import io.Workspace;
+import utils.Matrix;
+import utils.Pair;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the graph into balanced low-cut regions, solves every region with a halo of boundary vertices in parallel,
+ * then reconciles: direction a of every region is evaluated on the whole matrix and graph,
+ * so modules crossing region borders are rebuilt by the global MST repair, the best one is kept.
+ */
+public class PartitionedSolver implements MySolver {
+    @Override
+    public void close() {
+        log.close();
+    }
+
+    @FunctionalInterface
+    public interface RegionSolverFactory {
+        /**
+         * @param region number of the part, regions are solved in parallel and need different workspaces
+         */
+        MySolver create(int region, Matrix matrix, Graph graph) throws Exception;
+    }
+
+    // variables:
+
+    private static final double EPS = 1e-6;
+
+    private final Matrix matrix;
+    private final Graph graph;
+    private final int parts;
+    private final int haloDepth;
+    private final double STEP;
+    private final long seed;
+    private final RegionSolverFactory factory;
+
+    private final PrintWriter log;
+
+    private final SolutionPublisher publisher = new SolutionPublisher();
+
+    private ModuleSolution best;
+
+    // constructor:
+
+    public PartitionedSolver(
+            Matrix matrix,
+            Graph graph,
+            int parts,
+            int haloDepth,
+            double STEP,
+            long seed,
+            RegionSolverFactory factory
+    ) throws IOException {
+        this(matrix, graph, parts, haloDepth, STEP, seed, factory, Workspace.DEFAULT);
+    }
+
+    /**
+     * @param workspace folder for the log, region solvers get their workspace from the factory
+     */
+    public PartitionedSolver(
+            Matrix matrix,
+            Graph graph,
+            int parts,
+            int haloDepth,
+            double STEP,
+            long seed,
+            RegionSolverFactory factory,
+            Workspace workspace
+    ) throws IOException {
+        if (graph.getNodesCount() != matrix.numRows()) {
+            throw new RuntimeException("vertex count not equals with row count");
+        }
+
+        this.matrix = matrix;
+        this.graph = graph;
+        this.parts = parts;
+        this.haloDepth = haloDepth;
+        this.STEP = STEP;
+        this.seed = seed;
+        this.factory = factory;
+
+        this.log = new PrintWriter(workspace.logs() + "partitioned_solver.txt", StandardCharsets.UTF_8);
+    }
+
+    // public methods:
+
+    @Override
+    public boolean solve() throws Exception {
+        publisher.start();
+        best = null;
+
+        int[] part = new GraphPartitioner(seed).partition(graph, parts);
+        log.println("parts: " + parts + ", cut edges: " + GraphPartitioner.cutSize(graph, part));
+
+        Map<Integer, int[]> regions = new TreeMap<>();
+        for (int p = 0; p < parts; p++) {
+            int[] region = region(part, p);
+            log.println("region " + p + ": " + region.length + " vertices with halo");
+            if (region.length > 1) {
+                regions.put(p, region);
+            }
+        }
+
+        int threads = Math.max(1, Math.min(regions.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<double[]> directions = new ArrayList<>();
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            regions.forEach((p, region) -> futures.add(executor.submit(() -> solveRegion(p, region))));
+            for (Future<double[]> future : futures) {
+                double[] a = future.get();
+                if (a != null) {
+                    directions.add(a);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (double[] a : directions) {
+            ModuleSolution candidate = evaluate(matrix, graph, a, STEP);
+            if (candidate == null) {
+                continue;
+            }
+            log.println("candidate obj = " + candidate.objective());
+            if (best == null || candidate.objective() > best.objective()) {
+                best = candidate;
+                publisher.publish(candidate.objective(), candidate.q(), candidate.t());
+            }
+        }
+
+        return best != null;
+    }
+
+    @Override
+    public void writeVarsToFiles(PrintWriter out_q, PrintWriter out_x, PrintWriter out_t, PrintWriter out_y) {
+        best.writeToFiles(out_q, out_x, out_t, out_y);
+    }
+
+    @Override
+    public ModuleSolution getSolution() {
+        return best;
+    }
+
+    @Override
+    public void addListener(SolutionListener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void stopOnPlateau(long windowMillis, double gap) {
+        publisher.stopOnPlateau(windowMillis, gap);
+    }
+
+    @Override
+    public RunStatistics getStatistics() {
+        return publisher.getStatistics();
+    }
+
+    /**
+     * normalizes p = M * a to L1-norm N, repairs both sides with MST on the whole graph
+     *
+     * @return solution with the connect model objective or null for zero direction
+     */
+    public static ModuleSolution evaluate(Matrix matrix, Graph graph, double[] direction, double STEP) {
+        int N = matrix.numRows();
+        int E = graph.getEdges().size();
+
+        double[] p = new double[N];
+        double l1norm = 0;
+        for (int i = 0; i < N; i++) {
+            p[i] = Matrix.scalProd(matrix.getRow(i), direction);
+            l1norm += Math.abs(p[i]);
+        }
+        if (l1norm < EPS) {
+            return null;
+        }
+
+        double cff = N / l1norm;
+        double[] a = new double[direction.length];
+        for (int j = 0; j < a.length; j++) {
+            a[j] = direction[j] * cff;
+        }
+
+        double[] f = new double[N];
+        double[] g = new double[N];
+        for (int i = 0; i < N; i++) {
+            if (p[i] > 0) {
+                f[i] = p[i] * cff;
+            } else {
+                g[i] = -p[i] * cff;
+            }
+        }
+
+        double[] q = f.clone();
+        double[] t = g.clone();
+        double[] x = new double[E];
+        double[] y = new double[E];
+        for (int num = 0; num < E; num++) {
+            Pair<Integer, Integer> edge = graph.getEdges().get(num);
+            x[num] = q[edge.first] + q[edge.second];
+            y[num] = t[edge.first] + t[edge.second];
+        }
+
+        Pair<EdgeSelection, EdgeSelection> trees = MST.solveBothSides(graph, x, q, new double[N], graph, y, t, new double[N], STEP);
+
+        double objective = 0;
+        for (double val : a) {
+            objective += val * val * N * 10;
+        }
+        for (int i = 0; i < N; i++) {
+            objective -= (f[i] - q[i]) * (f[i] - q[i]);
+            objective -= (g[i] - t[i]) * (g[i] - t[i]);
+        }
+
+        return new ModuleSolution(a, q, trees.first, t, trees.second, objective);
+    }
+
+    // private methods:
+
+    private double[] solveRegion(int p, int[] region) throws Exception {
+        double[][] rows = new double[region.length][];
+        for (int i = 0; i < region.length; i++) {
+            rows[i] = matrix.getRow(region[i]);
+        }
+        try (MySolver solver = factory.create(p, new Matrix(rows), graph.induced(region))) {
+            if (solver.solve()) {
+                return solver.getSolution().a();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * core vertices of the part with halo of haloDepth, restricted to the connected component
+     * which contains most of the core, because the connect model needs a connected graph
+     */
+    private int[] region(int[] part, int p) {
+        int N = graph.getNodesCount();
+        int[] dist = new int[N];
+        Arrays.fill(dist, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int v = 0; v < N; v++) {
+            if (part[v] == p) {
+                dist[v] = 0;
+                queue.add(v);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            if (dist[v] == haloDepth) continue;
+            for (Pair<Integer, Long> pair : graph.edgesOf(v)) {
+                if (dist[pair.first] == -1) {
+                    dist[pair.first] = dist[v] + 1;
+                    queue.add(pair.first);
+                }
+            }
+        }
+
+        int[] comp = new int[N];
+        Arrays.fill(comp, -1);
+        List<Integer> coreCount = new ArrayList<>();
+        for (int start = 0; start < N; start++) {
+            if (dist[start] == -1 || comp[start] != -1) continue;
+            int id = coreCount.size();
+            int core = 0;
+            comp[start] = id;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                if (part[v] == p) core++;
+                for (Pair<Integer, Long> pair : graph.edgesOf(v)) {
+                    if (dist[pair.first] != -1 && comp[pair.first] == -1) {
+                        comp[pair.first] = id;
+                        queue.add(pair.first);
+                    }
+                }
+            }
+            coreCount.add(core);
+        }
+        if (coreCount.isEmpty()) {
+            return new int[0];
+        }
+
+        int bestComp = 0;
+        for (int id = 1; id < coreCount.size(); id++) {
+            if (coreCount.get(id) > coreCount.get(bestComp)) bestComp = id;
+        }
+        final int chosen = bestComp;
+        return IntStream.range(0, N).filter(v -> comp[v] == chosen).toArray();
+    }
+}
@@ -0,0 +1,83 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * time-to-quality statistics of one solve
+ */
+public class RunStatistics {
+    private static final double[] GAPS = {0.1, 0.05, 0.01, 0};
+
+    private final List<Incumbent> incumbents = new ArrayList<>();
+
+    public synchronized void add(Incumbent incumbent) {
+        incumbents.add(incumbent);
+    }
+
+    public synchronized void clear() {
+        incumbents.clear();
+    }
+
+    public synchronized List<Incumbent> getIncumbents() {
+        return new ArrayList<>(incumbents);
+    }
+
+    public synchronized Incumbent best() {
+        Incumbent best = null;
+        for (Incumbent incumbent : incumbents) {
+            if (best == null || incumbent.objective() > best.objective()) {
+                best = incumbent;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return time of the first incumbent within relative gap of the best one, -1 if there are no incumbents
+     */
+    public synchronized long timeToTarget(double gap) {
+        Incumbent best = best();
+        if (best == null) {
+            return -1;
+        }
+        double target = best.objective() - gap * Math.abs(best.objective());
+        for (Incumbent incumbent : incumbents) {
+            if (incumbent.objective() >= target) {
+                return incumbent.elapsedMillis();
+            }
+        }
+        return best.elapsedMillis();
+    }
+
+    /**
+     * @return true if the objective didn't improve by more than relative gap during the last window
+     */
+    public synchronized boolean hasPlateaued(long nowMillis, long windowMillis, double gap) {
+        Incumbent best = best();
+        if (best == null || nowMillis < windowMillis) {
+            return false;
+        }
+        double atWindowStart = Double.NEGATIVE_INFINITY;
+        for (Incumbent incumbent : incumbents) {
+            if (incumbent.elapsedMillis() <= nowMillis - windowMillis) {
+                atWindowStart = Math.max(atWindowStart, incumbent.objective());
+            }
+        }
+        return best.objective() - atWindowStart <= gap * Math.abs(best.objective());
+    }
+
+    @Override
+    public synchronized String toString() {
+        Incumbent best = best();
+        StringBuilder sb = new StringBuilder();
+        sb.append("RunStatistics{");
+        sb.append("\n| incumbents = ").append(incumbents.size());
+        sb.append("\n| best = ").append(best);
+        for (double gap : GAPS) {
+            sb.append("\n| time to ").append(gap * 100).append("% gap = ").append(timeToTarget(gap)).append(" ms");
+        }
+        sb.append("\n}");
+        return sb.toString();
+    }
+}
@@ -1,11 +1,14 @@
 package solver;
 
 import algo.MST;
+import graph.EdgeSelection;
 import graph.Graph;
+import io.Workspace;
 import ilog.concert.*;
 import ilog.cplex.*;
 import utils.Matrix;
 import utils.Pair;
+import utils.Parallel;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -46,6 +49,7 @@ public class SimpleCallbackSolver implements MySolver {
     private final double STEP;
 
     private final PrintWriter log;
+    private final Workspace workspace;
 
     private final Matrix matrix;
     private final int D;
@@ -57,17 +61,39 @@ public class SimpleCallbackSolver implements MySolver {
     private final Variables v;
     private RawSolution best;
 
+    /**
+     * score of every undirected edge in [-1, 1], null if not used
+     */
+    private double[] edgeWeights;
+
     private final IloCplex cplex;
 
+    private final SolutionPublisher publisher = new SolutionPublisher();
+
     private int cnt_ans = 0;
 
     // constructor:
 
     public SimpleCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP) throws IloException, IOException {
+        this(matrix, graph, TIME_LIMIT, INF, STEP, Workspace.DEFAULT);
+    }
+
+    /**
+     * @param workspace folders for the log and the heuristic solution dumps
+     */
+    public SimpleCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP, Workspace workspace) throws IloException, IOException {
+        this(matrix, graph, TIME_LIMIT, INF, STEP, workspace, 0);
+    }
+
+    /**
+     * @param threads CPLEX threads, 0 for all cores; parallel runs should share the cores
+     */
+    public SimpleCallbackSolver(Matrix matrix, Graph graph, int TIME_LIMIT, double INF, double STEP, Workspace workspace, int threads) throws IloException, IOException {
         this.INF = INF;
         this.STEP = STEP;
+        this.workspace = workspace;
 
-        this.log = new PrintWriter("./logs/simple_callback_solver.txt", StandardCharsets.UTF_8);
+        this.log = new PrintWriter(workspace.logs() + "simple_callback_solver.txt", StandardCharsets.UTF_8);
 
         this.matrix = matrix;
         this.N = matrix.numRows();
@@ -85,6 +111,7 @@ public class SimpleCallbackSolver implements MySolver {
         this.cplex = new IloCplex();
         this.cplex.setParam(IloCplex.Param.OptimalityTarget, IloCplex.OptimalityTarget.OptimalGlobal);
         this.cplex.setParam(IloCplex.Param.TimeLimit, TIME_LIMIT);
+        this.cplex.setParam(IloCplex.Param.Threads, threads);
 
         addVariables();
         addObjective();
@@ -170,6 +197,8 @@ public class SimpleCallbackSolver implements MySolver {
         public final double[] s;
         public final double[] t;
         public final double[] y;
+        public EdgeSelection xTree;
+        public EdgeSelection yTree;
 
         private RawSolution(
                 double[] a,
@@ -239,21 +268,26 @@ public class SimpleCallbackSolver implements MySolver {
 
             System.arraycopy(g, 0, t, 0, g.length);
 
-            for (int i = 0; i < graph.getEdges().size(); i++) {
-                Pair<Integer, Integer> edge = graph.getEdges().get(i);
-                x[i] = q[edge.first] + q[edge.second];
-            }
+            Pair<EdgeSelection, EdgeSelection> trees = Parallel.both(
+                    () -> solveSide(x, q, r),
+                    () -> solveSide(y, t, s)
+            );
+            xTree = trees.first;
+            yTree = trees.second;
 
+            return true;
+        }
+
+        private EdgeSelection solveSide(double[] x, double[] q, double[] r) {
             for (int i = 0; i < graph.getEdges().size(); i++) {
                 Pair<Integer, Integer> edge = graph.getEdges().get(i);
-                y[i] = t[edge.first] + t[edge.second];
+                x[i] = q[edge.first] + q[edge.second];
+                if (edgeWeights != null) {
+                    x[i] *= (1 + edgeWeights[i / 2]) / 2;
+                }
             }
 
-            MST.solve(graph, x, q, r, STEP);
-
-            MST.solve(graph, y, t, s, STEP);
-
-            return true;
+            return MST.solve(graph, x, q, r, STEP);
         }
 
         private static double calcL1Norm(double[] p) {
@@ -280,10 +314,10 @@ public class SimpleCallbackSolver implements MySolver {
                     "\n| beta = " + Arrays.toString(beta) +
                     "\n| r = " + Arrays.toString(r) +
                     "\n| q = " + Arrays.toString(q) +
-                    "\n| x = " + Arrays.toString(x) +
+                    "\n| x = " + ((xTree != null) ? xTree : Arrays.toString(x)) +
                     "\n| s = " + Arrays.toString(s) +
                     "\n| t = " + Arrays.toString(t) +
-                    "\n| y = " + Arrays.toString(y) +
+                    "\n| y = " + ((yTree != null) ? yTree : Arrays.toString(y)) +
                     "\n}";
         }
     }
@@ -292,6 +326,11 @@ public class SimpleCallbackSolver implements MySolver {
         @Override
         protected void main() throws IloException {
 
+            if (publisher.shouldStop()) {
+                abort();
+                return;
+            }
+
             RawSolution sol = new RawSolution(
                     this.getValues((v.a)),
                     this.getValues((v.f)),
@@ -322,25 +361,21 @@ public class SimpleCallbackSolver implements MySolver {
                 log.println();
 
                 try {
-                    try (PrintWriter out_q = new PrintWriter("./answers/q.txt")) {
+                    try (PrintWriter out_q = new PrintWriter(workspace.answers() + "q.txt")) {
                         for (int i = 0; i < sol.q.length; i++) {
                             out_q.println(sol.q[i]);
                         }
                     }
-                    try (PrintWriter out_x = new PrintWriter("./answers/x.txt")) {
-                        for (int i = 0; i < sol.x.length; i++) {
-                            out_x.println(sol.x[i]);
-                        }
+                    try (PrintWriter out_x = new PrintWriter(workspace.answers() + "x.txt")) {
+                        sol.xTree.write(out_x);
                     }
-                    try (PrintWriter out_t = new PrintWriter("./answers/t.txt")) {
+                    try (PrintWriter out_t = new PrintWriter(workspace.answers() + "t.txt")) {
                         for (int i = 0; i < sol.t.length; i++) {
                             out_t.println(sol.t[i]);
                         }
                     }
-                    try (PrintWriter out_y = new PrintWriter("./answers/y.txt")) {
-                        for (int i = 0; i < sol.y.length; i++) {
-                            out_y.println(sol.y[i]);
-                        }
+                    try (PrintWriter out_y = new PrintWriter(workspace.answers() + "y.txt")) {
+                        sol.yTree.write(out_y);
                     }
                 } catch (Exception e) {
                     throw new RuntimeException(e);
@@ -348,6 +383,7 @@ public class SimpleCallbackSolver implements MySolver {
 
                 if (best == null || calcObj >= calcObjective(best)) {
                     best = sol;
+                    publisher.publish(calcObj, sol.q, sol.t);
                 }
 
                 double[] vals = new double[v.allVars.length];
@@ -369,10 +405,44 @@ public class SimpleCallbackSolver implements MySolver {
 
     // public methods:
 
+    /**
+     * scales the MST weights q_u + q_v of the heuristic by (1 + weight) / 2, so edges with weakly correlated
+     * endpoints are taken last, see {@link analysis.EdgeCorrelation}
+     *
+     * @param edgeWeights scores in [-1, 1] indexed by undirected edge id
+     */
+    public void setEdgeWeights(double[] edgeWeights) {
+        if (edgeWeights.length != E / 2) {
+            throw new RuntimeException("expected weight for every undirected edge");
+        }
+        this.edgeWeights = edgeWeights;
+    }
+
     public boolean solve() throws IloException {
+        publisher.start();
         return cplex.solve();
     }
 
+    @Override
+    public void addListener(SolutionListener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void stopOnPlateau(long windowMillis, double gap) {
+        publisher.stopOnPlateau(windowMillis, gap);
+    }
+
+    @Override
+    public RunStatistics getStatistics() {
+        return publisher.getStatistics();
+    }
+
+    @Override
+    public ModuleSolution getSolution() {
+        return new ModuleSolution(best.a, best.q, best.xTree, best.t, best.yTree, calcObjective(best));
+    }
+
     public void writeVarsToFiles(PrintWriter out_q, PrintWriter out_x, PrintWriter out_t, PrintWriter out_y) throws IloException {
         System.out.println("obj = " + cplex.getObjValue());
         for (int i = 0; i < D; i++) {
@@ -382,15 +452,11 @@ public class SimpleCallbackSolver implements MySolver {
         for (int i = 0; i < best.q.length; i++) {
             out_q.println(best.q[i]);
         }
-        for (int i = 0; i < best.x.length; i++) {
-            out_x.println(best.x[i]);
-        }
+        best.xTree.write(out_x);
         for (int i = 0; i < best.t.length; i++) {
             out_t.println(best.t[i]);
         }
-        for (int i = 0; i < best.y.length; i++) {
-            out_y.println(best.y[i]);
-        }
+        best.yTree.write(out_y);
     }
 
     // private static methods:
@@ -0,0 +1,11 @@
+package solver;
+
+@FunctionalInterface
+public interface SolutionListener {
+    /**
+     * called from solver threads for every new incumbent
+     *
+     * @return false to stop the solver
+     */
+    boolean onIncumbent(Incumbent incumbent);
+}
@@ -0,0 +1,75 @@
+package solver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * publishes incumbents of a solver to its listeners and collects run statistics
+ */
+class SolutionPublisher {
+    /**
+     * vertex belongs to found module if its score is MODULE_LEVEL times above the average |p_i| = 1
+     */
+    static final double MODULE_LEVEL = 2.0;
+
+    private final List<SolutionListener> listeners = new CopyOnWriteArrayList<>();
+    private final RunStatistics statistics = new RunStatistics();
+
+    private volatile long startNanos = System.nanoTime();
+    private volatile boolean stopRequested = false;
+    private long plateauWindowMillis = -1;
+    private double plateauGap = 0;
+    private int count = 0;
+
+    void addListener(SolutionListener listener) {
+        listeners.add(listener);
+    }
+
+    void stopOnPlateau(long windowMillis, double gap) {
+        this.plateauWindowMillis = windowMillis;
+        this.plateauGap = gap;
+    }
+
+    RunStatistics getStatistics() {
+        return statistics;
+    }
+
+    synchronized void start() {
+        statistics.clear();
+        count = 0;
+        stopRequested = false;
+        startNanos = System.nanoTime();
+    }
+
+    synchronized void publish(double objective, double[] q, double[] t) {
+        Incumbent incumbent = new Incumbent(++count, objective, elapsedMillis(), moduleSize(q), moduleSize(t));
+        statistics.add(incumbent);
+        for (SolutionListener listener : listeners) {
+            if (!listener.onIncumbent(incumbent)) {
+                stopRequested = true;
+            }
+        }
+    }
+
+    /**
+     * checked by solver callbacks on every call
+     */
+    boolean shouldStop() {
+        if (stopRequested) {
+            return true;
+        }
+        return plateauWindowMillis > 0 && statistics.hasPlateaued(elapsedMillis(), plateauWindowMillis, plateauGap);
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static int moduleSize(double[] scores) {
+        int size = 0;
+        for (double val : scores) {
+            if (val > MODULE_LEVEL) size++;
+        }
+        return size;
+    }
+}
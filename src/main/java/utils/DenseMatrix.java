@@ -0,0 +1,312 @@
+package utils;
+
+import java.util.stream.IntStream;
+
+/**
+ * Dense matrix on one contiguous double[] or float[] with explicit strides,
+ * row-major has colStride == 1, column-major has rowStride == 1.
+ * Transpose is a zero-copy view on the same data.
+ * Float32 storage only narrows what is stored, all reductions accumulate in double.
+ */
+public final class DenseMatrix {
+    private static final int BLOCK = 64;
+    private static final int K_BLOCK = 256;
+    private static final long PARALLEL_THRESHOLD = 1L << 16;
+
+    /**
+     * exactly one of data and floats is not null
+     */
+    private final double[] data;
+    private final float[] floats;
+    private final int rows;
+    private final int cols;
+    private final int rowStride;
+    private final int colStride;
+
+    private DenseMatrix(double[] data, float[] floats, int rows, int cols, int rowStride, int colStride) {
+        this.data = data;
+        this.floats = floats;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowStride = rowStride;
+        this.colStride = colStride;
+    }
+
+    /**
+     * zero row-major matrix
+     */
+    public DenseMatrix(int rows, int cols) {
+        this(new double[Math.multiplyExact(rows, cols)], null, rows, cols, cols, 1);
+    }
+
+    /**
+     * wraps data without copy
+     */
+    public static DenseMatrix wrap(double[] data, int rows, int cols, boolean rowMajor) {
+        if (data.length != (long) rows * cols) {
+            throw new RuntimeException("expected data length of rows * cols");
+        }
+        return rowMajor
+                ? new DenseMatrix(data, null, rows, cols, cols, 1)
+                : new DenseMatrix(data, null, rows, cols, 1, rows);
+    }
+
+    /**
+     * wraps float32 data without copy
+     */
+    public static DenseMatrix wrap(float[] data, int rows, int cols, boolean rowMajor) {
+        if (data.length != (long) rows * cols) {
+            throw new RuntimeException("expected data length of rows * cols");
+        }
+        return rowMajor
+                ? new DenseMatrix(null, data, rows, cols, cols, 1)
+                : new DenseMatrix(null, data, rows, cols, 1, rows);
+    }
+
+    public static DenseMatrix of(double[][] data) {
+        int rows = data.length;
+        int cols = (rows == 0) ? 0 : data[0].length;
+        DenseMatrix res = new DenseMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            if (data[i].length != cols) {
+                throw new RuntimeException("wrong matrix argument, no rectangle");
+            }
+            System.arraycopy(data[i], 0, res.data, i * cols, cols);
+        }
+        return res;
+    }
+
+    public int numRows() {
+        return rows;
+    }
+
+    public int numCols() {
+        return cols;
+    }
+
+    public boolean isRowMajor() {
+        return colStride == 1;
+    }
+
+    public boolean isFloat() {
+        return floats != null;
+    }
+
+    public double get(int row, int col) {
+        int idx = row * rowStride + col * colStride;
+        return (floats != null) ? floats[idx] : data[idx];
+    }
+
+    public void set(int row, int col, double val) {
+        int idx = row * rowStride + col * colStride;
+        if (floats != null) {
+            floats[idx] = (float) val;
+        } else {
+            data[idx] = val;
+        }
+    }
+
+    public double[] getRow(int row) {
+        double[] res = new double[cols];
+        if (colStride == 1 && floats == null) {
+            System.arraycopy(data, row * rowStride, res, 0, cols);
+        } else {
+            for (int j = 0; j < cols; j++) res[j] = get(row, j);
+        }
+        return res;
+    }
+
+    public double[] getColumn(int col) {
+        return transpose().getRow(col);
+    }
+
+    /**
+     * zero-copy view
+     */
+    public DenseMatrix transpose() {
+        return new DenseMatrix(data, floats, cols, rows, colStride, rowStride);
+    }
+
+    /**
+     * @return this matrix if it is already contiguous in the requested layout, otherwise a packed copy
+     * of the same precision
+     */
+    public DenseMatrix pack(boolean rowMajor) {
+        if (rowMajor && colStride == 1 && rowStride == cols) return this;
+        if (!rowMajor && rowStride == 1 && colStride == rows) return this;
+        DenseMatrix res = (floats != null)
+                ? wrap(new float[floats.length], rows, cols, rowMajor)
+                : wrap(new double[data.length], rows, cols, rowMajor);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                res.set(i, j, get(i, j));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return row-major float32 matrix, this one if it is already such, otherwise a narrowed copy
+     */
+    public DenseMatrix toFloat() {
+        DenseMatrix packed = pack(true);
+        if (packed.floats != null) return packed;
+        float[] res = new float[packed.data.length];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = (float) packed.data[i];
+        }
+        return wrap(res, rows, cols, true);
+    }
+
+    /**
+     * @return row-major float64 matrix, this one if it is already such, otherwise a widened copy
+     */
+    public DenseMatrix toDouble() {
+        DenseMatrix packed = pack(true);
+        if (packed.data != null) return packed;
+        double[] res = new double[packed.floats.length];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = packed.floats[i];
+        }
+        return wrap(res, rows, cols, true);
+    }
+
+    /**
+     * cache-blocked multiply, row blocks of the result are computed in parallel,
+     * both matrices are read in their own precision, the result is float64
+     */
+    public DenseMatrix mult(DenseMatrix other) {
+        if (cols != other.rows) {
+            throw new RuntimeException("matrix dimensions mismatch in mult");
+        }
+        int n = rows;
+        int k = cols;
+        int m = other.cols;
+
+        DenseMatrix packed = pack(true);
+        double[] a = packed.data;
+        float[] af = packed.floats;
+        DenseMatrix packedOther = other.transpose().pack(true);
+        double[] bt = packedOther.data;
+        float[] btf = packedOther.floats;
+        double[] c = new double[Math.multiplyExact(n, m)];
+
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        IntStream range = IntStream.range(0, blocks);
+        if ((long) n * m * k >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(ib -> {
+            int iEnd = Math.min(n, (ib + 1) * BLOCK);
+            for (int kb = 0; kb < k; kb += K_BLOCK) {
+                int kEnd = Math.min(k, kb + K_BLOCK);
+                for (int jb = 0; jb < m; jb += BLOCK) {
+                    int jEnd = Math.min(m, jb + BLOCK);
+                    for (int i = ib * BLOCK; i < iEnd; i++) {
+                        for (int j = jb; j < jEnd; j++) {
+                            double val;
+                            if (af != null) {
+                                val = (btf != null)
+                                        ? dot(af, i * k, btf, j * k, kb, kEnd)
+                                        : dot(af, i * k, bt, j * k, kb, kEnd);
+                            } else {
+                                val = (btf != null)
+                                        ? dot(btf, j * k, a, i * k, kb, kEnd)
+                                        : dot(a, i * k, bt, j * k, kb, kEnd);
+                            }
+                            c[i * m + j] += val;
+                        }
+                    }
+                }
+            }
+        });
+
+        return wrap(c, n, m, true);
+    }
+
+    public DenseMatrix div(double val) {
+        DenseMatrix res = pack(true);
+        if (res.floats != null) {
+            float[] copy = (res == this) ? floats.clone() : res.floats;
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] /= val;
+            }
+            return wrap(copy, rows, cols, true);
+        }
+        double[] copy = (res == this) ? data.clone() : res.data;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] /= val;
+        }
+        return wrap(copy, rows, cols, true);
+    }
+
+    /**
+     * @return underlying array if the matrix is packed row-major float64, otherwise a packed widened copy
+     */
+    public double[] rowMajorData() {
+        return toDouble().data;
+    }
+
+    /**
+     * @return underlying array if the matrix is packed row-major float32, otherwise a packed narrowed copy
+     */
+    public float[] rowMajorFloats() {
+        return toFloat().floats;
+    }
+
+    public double[][] toArray() {
+        double[][] res = new double[rows][];
+        for (int i = 0; i < rows; i++) {
+            res[i] = getRow(i);
+        }
+        return res;
+    }
+
+    public static double dot(double[] x, int xOffset, double[] y, int yOffset, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int l = from;
+        for (; l + 3 < to; l += 4) {
+            s0 += x[xOffset + l] * y[yOffset + l];
+            s1 += x[xOffset + l + 1] * y[yOffset + l + 1];
+            s2 += x[xOffset + l + 2] * y[yOffset + l + 2];
+            s3 += x[xOffset + l + 3] * y[yOffset + l + 3];
+        }
+        for (; l < to; l++) {
+            s0 += x[xOffset + l] * y[yOffset + l];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * float32 data, float64 accumulation
+     */
+    public static double dot(float[] x, int xOffset, double[] y, int yOffset, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int l = from;
+        for (; l + 3 < to; l += 4) {
+            s0 += x[xOffset + l] * y[yOffset + l];
+            s1 += x[xOffset + l + 1] * y[yOffset + l + 1];
+            s2 += x[xOffset + l + 2] * y[yOffset + l + 2];
+            s3 += x[xOffset + l + 3] * y[yOffset + l + 3];
+        }
+        for (; l < to; l++) {
+            s0 += x[xOffset + l] * y[yOffset + l];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static double dot(float[] x, int xOffset, float[] y, int yOffset, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int l = from;
+        for (; l + 3 < to; l += 4) {
+            s0 += (double) x[xOffset + l] * y[yOffset + l];
+            s1 += (double) x[xOffset + l + 1] * y[yOffset + l + 1];
+            s2 += (double) x[xOffset + l + 2] * y[yOffset + l + 2];
+            s3 += (double) x[xOffset + l + 3] * y[yOffset + l + 3];
+        }
+        for (; l < to; l++) {
+            s0 += (double) x[xOffset + l] * y[yOffset + l];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
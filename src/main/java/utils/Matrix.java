@@ -8,68 +8,94 @@ import java.util.*;
 public class Matrix {
     private static final double EPS = 1e-6;
 
-    private final RealMatrix entry;
+    private final DenseMatrix entry;
 
     public Matrix(double[][] data) {
-        this.entry = new Array2DRowRealMatrix(data);
+        this.entry = DenseMatrix.of(data);
     }
 
     public Matrix(double[] vec) {
-        this.entry = new Array2DRowRealMatrix(new double[][]{vec});
+        this.entry = DenseMatrix.wrap(vec.clone(), 1, vec.length, true);
     }
 
     public Matrix(List<List<Double>> data) {
         if (data.isEmpty()) {
             throw new RuntimeException("expected non-empty matrix argument");
         }
-        double[][] this_data = new double[data.size()][data.get(0).size()];
+        int cols = data.get(0).size();
+        DenseMatrix this_data = new DenseMatrix(data.size(), cols);
         for (int i = 0; i < data.size(); i++) {
-            if (data.get(i).size() != data.get(0).size()) {
+            if (data.get(i).size() != cols) {
                 throw new RuntimeException("wrong matrix argument, no rectangle");
             }
-            for (int j = 0; j < data.get(0).size(); j++) {
-                this_data[i][j] = data.get(i).get(j);
+            for (int j = 0; j < cols; j++) {
+                this_data.set(i, j, data.get(i).get(j));
             }
         }
-        this.entry = new Array2DRowRealMatrix(this_data);
+        this.entry = this_data;
     }
 
     public Matrix(RealMatrix mtx) {
+        this.entry = DenseMatrix.of(mtx.getData());
+    }
+
+    public Matrix(DenseMatrix mtx) {
         this.entry = mtx;
     }
 
+    public DenseMatrix dense() {
+        return entry;
+    }
+
+    public boolean isFloat() {
+        return entry.isFloat();
+    }
+
+    /**
+     * float32 storage copy, this matrix if it is already float32
+     */
+    public Matrix toFloat() {
+        DenseMatrix res = entry.toFloat();
+        return (res == entry) ? this : new Matrix(res);
+    }
+
     public int numCols() {
-        return entry.getColumnDimension();
+        return entry.numCols();
     }
 
     public int numRows() {
-        return entry.getRowDimension();
+        return entry.numRows();
     }
 
     public double[] getRow(int row) {
         return entry.getRow(row);
     }
 
+    public double[] getColumn(int col) {
+        return entry.getColumn(col);
+    }
+
     public double getElem(int row, int col) {
-        return entry.getEntry(row, col);
+        return entry.get(row, col);
     }
 
+    /**
+     * zero-copy view
+     */
     public Matrix transpose() {
         return new Matrix(this.entry.transpose());
     }
 
     public Matrix mult(Matrix other) {
-        return new Matrix(this.entry.multiply(other.entry));
+        return new Matrix(this.entry.mult(other.entry));
     }
 
     public Matrix div(double N) {
-        double[][] res = new double[numRows()][numCols()];
-        for (int row = 0; row < numRows(); row++) {
-            for (int col = 0; col < numCols(); col++) {
-                res[row][col] = getElem(row, col) / N;
-            }
-        }
-        return new Matrix(res);
+        return new Matrix(entry.div(N));
+    }
+
+    public double[] singularValues() {
+        return new SingularValueDecomposition(toRealMatrix()).getSingularValues();
     }
 
     public Pair<double[], double[][]> decomposition(PrintWriter err) {
@@ -85,7 +111,7 @@ public class Matrix {
             }
         }
 
-        EigenDecomposition eig = new EigenDecomposition(entry);
+        EigenDecomposition eig = new EigenDecomposition(toRealMatrix());
 
         if (eig.hasComplexEigenvalues()) {
             throw new RuntimeException("expected non-complex eigen values!");
@@ -103,7 +129,9 @@ public class Matrix {
             }
         }
 
-        err.println("# decompose debug:");
+        if (err != null) {
+            err.println("# decompose debug:");
+        }
 
         double[][] eigenVectors = new double[numRows()][numRows()];
         for (int i = 0; i < eigenVectors.length; i++) {
@@ -119,7 +147,9 @@ public class Matrix {
                 sum += eigenVector[j] * eigenVector[j];
             }
 
-            err.println("!!! eigenVector sum : " + sum + " : " + Arrays.toString(eigenVector));
+            if (err != null) {
+                err.println("!!! eigenVector sum : " + sum + " : " + Arrays.toString(eigenVector));
+            }
 
             if (Math.abs(sum - 1) > EPS) {
                 throw new RuntimeException("L2-norm of eigen vector must be 1!");
@@ -131,6 +161,10 @@ public class Matrix {
         return new Pair<>(eigenValues, eigenVectors);
     }
 
+    private RealMatrix toRealMatrix() {
+        return new Array2DRowRealMatrix(entry.toArray(), false);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
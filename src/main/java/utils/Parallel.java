@@ -0,0 +1,59 @@
+package utils;
+
+import java.util.function.Supplier;
+
+/**
+ * static class
+ */
+public class Parallel {
+    /**
+     * recursive DFS in MST needs a deep stack on big graphs
+     */
+    private static final long STACK_SIZE = 1L << 28;
+
+    /**
+     * runs positive side in the current thread and negative side in a separate one, then joins
+     */
+    public static <T> Pair<T, T> both(Supplier<T> positive, Supplier<T> negative) {
+        @SuppressWarnings("unchecked")
+        T[] negativeAns = (T[]) new Object[1];
+        Throwable[] negativeErr = new Throwable[1];
+
+        Thread thread = new Thread(null, () -> {
+            try {
+                negativeAns[0] = negative.get();
+            } catch (Throwable e) {
+                negativeErr[0] = e;
+            }
+        }, "negative-side", STACK_SIZE);
+        thread.start();
+
+        T positiveAns;
+        try {
+            positiveAns = positive.get();
+        } finally {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (negativeErr[0] != null) {
+            throw new RuntimeException("negative side failed", negativeErr[0]);
+        }
+
+        return new Pair<>(positiveAns, negativeAns[0]);
+    }
+
+    public static void both(Runnable positive, Runnable negative) {
+        both(() -> {
+            positive.run();
+            return null;
+        }, () -> {
+            negative.run();
+            return null;
+        });
+    }
+}